@@ -0,0 +1,97 @@
+/****************************************************************************
+ Class: SyntheticCorpus
+ Purpose: Writes synthetic text files for the benchmarks, with a chosen
+ number of words, vocabulary size and vocabulary skew.
+
+ Static Methods:
+ 	String Write(int words, int vocabulary, double skew, long seed) :
+ 		Writes a text file to a temporary directory, returning its name.
+
+ Word i of the vocabulary is drawn with probability proportional to
+ 1/(i+1)^skew, so a skew of 0 is uniform and a skew of 1 follows Zipf's
+ law, as natural text roughly does.  Words are separated by a mix of
+ spaces, end-of-line markers and punctuation, and some are capitalized,
+ so the parsers' normalization is exercised too.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+// Class declaration:
+public class SyntheticCorpus
+{
+	// Separators written between words, chosen uniformly
+	private static final String[] Separators = { " ", " ", " ", "\n", ", ", ". ", "; " };
+
+	//-----------------------------------------------------------------------
+	// Write: Writes a synthetic text file.
+	//
+	// Input: The number of words, the vocabulary size, the skew of the
+	// word distribution, and a seed, so that runs are repeatable.
+	// Output: The name of the file, which is deleted when the JVM exits.
+	//-----------------------------------------------------------------------
+	public static String Write(int words, int vocabulary, double skew, long seed) throws IOException
+	{
+		Random random = new Random(seed);
+
+		// Build the cumulative distribution of the vocabulary.
+		double[] cumulative = new double[vocabulary];
+		double total = 0;
+		for (int i=0; i<vocabulary; i++)
+		{
+			total += 1.0 / Math.pow(i + 1, skew);
+			cumulative[i] = total;
+		}
+
+		File file = File.createTempFile("corpus-" + words + "-" + vocabulary + "-" + skew + "-", ".txt");
+		file.deleteOnExit();
+
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		try{
+			for (int w=0; w<words; w++)
+			{
+				int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+				if (index < 0)
+				{
+					index = -index - 1;
+				}
+				String word = Word(Math.min(index, vocabulary - 1));
+				if (random.nextInt(10) == 0)
+				{
+					word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+				}
+				out.write(word);
+				out.write(Separators[random.nextInt(Separators.length)]);
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+		return file.getPath();
+	}
+
+	//-----------------------------------------------------------------------
+	// Word: Returns the distinct word with the given index, written in
+	// base 26 with a few leading letters so that short words stay distinct.
+	//-----------------------------------------------------------------------
+	private static String Word(int index)
+	{
+		StringBuilder word = new StringBuilder();
+		int n = index;
+		do
+		{
+			word.append((char)('a' + n % 26));
+			n /= 26;
+		}
+		while (n > 0);
+		return word.append("qz").reverse().toString();
+	}
+}
@@ -0,0 +1,68 @@
+/****************************************************************************
+ Class: VectorTextFile2Benchmark
+ Purpose: JMH benchmarks for each phase of VectorTextFile2: parsing, sorting,
+ counting, dot product and angle, over synthetic corpora of varying size,
+ vocabulary and skew (see SyntheticCorpus).  All but the sort are shared
+ with the other word-list vectors, in WordListBenchmark.
+
+ Run with the JMH runner, e.g.:
+ 	java -jar bench/target/benchmarks.jar VectorTextFile2Benchmark
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+// Class declaration:
+public class VectorTextFile2Benchmark extends WordListBenchmark<VectorTextFile2>
+{
+	/*****************************
+	 * Benchmarks
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// sort: Sorts the words of document A, starting from file order.  The
+	// time includes one O(n) copy to restore the unsorted list.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public String[] sort() throws Exception
+	{
+		System.arraycopy(m_Unsorted, 0, m_Scratch.m_WordList, 0, m_Unsorted.length);
+		m_Scratch.InsertionSortWords(0, m_Scratch.m_FileWordCount-1);
+		return m_Scratch.m_WordList;
+	}
+
+	/*****************************
+	 * Vector class hooks
+	 *****************************/
+
+	VectorTextFile2 Build(String fileName)
+	{
+		return new VectorTextFile2(fileName);
+	}
+
+	String[] Parse(VectorTextFile2 vector, String fileName) throws IOException
+	{
+		vector.ParseFile(fileName);
+		return vector.m_WordList;
+	}
+
+	Object Count(VectorTextFile2 vector) throws Exception
+	{
+		vector.CountWordFrequencies();
+		return vector.m_CountedWords;
+	}
+
+	long DotProduct(VectorTextFile2 A, VectorTextFile2 B)
+	{
+		return VectorTextFile2.DotProduct(A, B);
+	}
+
+	double Angle(VectorTextFile2 A, VectorTextFile2 B)
+	{
+		return VectorTextFile2.Angle(A, B);
+	}
+}
@@ -0,0 +1,164 @@
+/****************************************************************************
+ Class: VectorTextFile3Benchmark
+ Purpose: JMH benchmarks for each phase of VectorTextFile3: parsing, sorting,
+ counting, dot product and angle, over synthetic corpora of varying size,
+ vocabulary and skew (see SyntheticCorpus).
+
+ Also covers the parallel sort and the HashCounting mode, which fuses
+ tokenizing and counting.
+
+ Run with the JMH runner, e.g.:
+ 	java -jar bench/target/benchmarks.jar VectorTextFile3Benchmark
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Class declaration:
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class VectorTextFile3Benchmark
+{
+	/*****************************
+	 * Benchmark parameters
+	 *****************************/
+	// Number of words in each document
+	@Param({"10000", "100000", "1000000"})
+	public int words;
+
+	// Number of distinct words the documents are drawn from
+	@Param({"1000", "50000"})
+	public int vocabulary;
+
+	// Skew of the word distribution: 0 is uniform, 1 is Zipfian
+	@Param({"0.0", "1.0", "1.5"})
+	public double skew;
+
+	/*****************************
+	 * Benchmark state
+	 *****************************/
+	// The two documents
+	String m_FileA;
+	String m_FileB;
+
+	// Fully built vectors of the two documents
+	VectorTextFile3 m_A;
+	VectorTextFile3 m_B;
+
+	// Vector whose word list is re-parsed and re-sorted by the benchmarks,
+	// and the words of document A in file order
+	VectorTextFile3 m_Scratch;
+	String[] m_Unsorted;
+
+	//-----------------------------------------------------------------------
+	// setUp: Writes the two documents and builds their vectors.
+	//-----------------------------------------------------------------------
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		m_FileA = SyntheticCorpus.Write(words, vocabulary, skew, 1);
+		m_FileB = SyntheticCorpus.Write(words, vocabulary, skew, 2);
+		m_A = new VectorTextFile3(m_FileA);
+		m_B = new VectorTextFile3(m_FileB);
+
+		m_Scratch = new VectorTextFile3(m_FileA);
+		m_Scratch.ParseFile(m_FileA);
+		m_Unsorted = m_Scratch.m_WordList.clone();
+	}
+
+	/*****************************
+	 * Benchmarks
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// parse: Reads and tokenizes document A.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public String[] parse() throws IOException
+	{
+		m_Scratch.ParseFile(m_FileA);
+		return m_Scratch.m_WordList;
+	}
+
+	//-----------------------------------------------------------------------
+	// sort: Sorts the words of document A, starting from file order.  The
+	// time includes one O(n) copy to restore the unsorted list.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public String[] sort() throws Exception
+	{
+		System.arraycopy(m_Unsorted, 0, m_Scratch.m_WordList, 0, m_Unsorted.length);
+		m_Scratch.MergeSortWords(0, m_Scratch.m_FileWordCount-1);
+		return m_Scratch.m_WordList;
+	}
+
+	//-----------------------------------------------------------------------
+	// parallelSort: As sort, using ParallelMergeSortWords.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public String[] parallelSort() throws Exception
+	{
+		System.arraycopy(m_Unsorted, 0, m_Scratch.m_WordList, 0, m_Unsorted.length);
+		m_Scratch.ParallelMergeSortWords(0, m_Scratch.m_FileWordCount-1, VectorTextFile3.DefaultParallelThreshold);
+		return m_Scratch.m_WordList;
+	}
+
+	//-----------------------------------------------------------------------
+	// hashCount: Tokenizes and counts document A in HashCounting mode, which
+	// replaces parse, sort and count.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public Object hashCount() throws Exception
+	{
+		m_Scratch.CountWordsByHashing(m_FileA);
+		return m_Scratch.m_CountedWords;
+	}
+
+	//-----------------------------------------------------------------------
+	// count: Counts the sorted words of document A.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public Object count() throws Exception
+	{
+		m_A.CountWordFrequencies();
+		return m_A.m_CountedWords;
+	}
+
+	//-----------------------------------------------------------------------
+	// dotProduct: Computes the dot product of the two documents.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public long dotProduct()
+	{
+		return VectorTextFile3.DotProduct(m_A, m_B);
+	}
+
+	//-----------------------------------------------------------------------
+	// angle: Computes the angle between the two documents.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public double angle()
+	{
+		return VectorTextFile3.Angle(m_A, m_B);
+	}
+}
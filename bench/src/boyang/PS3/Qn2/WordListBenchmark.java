@@ -0,0 +1,146 @@
+/****************************************************************************
+ Class: WordListBenchmark
+ Purpose: Shared JMH state and benchmarks for the vector classes that
+ store a file as a sorted word list, VectorTextFile and VectorTextFile2:
+ the synthetic corpora, and the parsing, counting, dot product and angle
+ benchmarks.  Each subclass supplies its vector class through the hooks
+ below, and its own sort benchmark, the one phase whose method differs.
+
+ The parameters keep documents small, since both classes sort by
+ insertion, in quadratic time.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Class declaration:
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public abstract class WordListBenchmark<V>
+{
+	/*****************************
+	 * Benchmark parameters
+	 *****************************/
+	// Number of words in each document (insertion sort is quadratic,
+	// so sizes stay small)
+	@Param({"1000", "10000"})
+	public int words;
+
+	// Number of distinct words the documents are drawn from
+	@Param({"1000", "50000"})
+	public int vocabulary;
+
+	// Skew of the word distribution: 0 is uniform, 1 is Zipfian
+	@Param({"0.0", "1.0", "1.5"})
+	public double skew;
+
+	/*****************************
+	 * Benchmark state
+	 *****************************/
+	// The two documents
+	String m_FileA;
+	String m_FileB;
+
+	// Fully built vectors of the two documents
+	V m_A;
+	V m_B;
+
+	// Vector whose word list is re-parsed and re-sorted by the benchmarks,
+	// and the words of document A in file order
+	V m_Scratch;
+	String[] m_Unsorted;
+
+	//-----------------------------------------------------------------------
+	// setUp: Writes the two documents and builds their vectors.
+	//-----------------------------------------------------------------------
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		m_FileA = SyntheticCorpus.Write(words, vocabulary, skew, 1);
+		m_FileB = SyntheticCorpus.Write(words, vocabulary, skew, 2);
+		m_A = Build(m_FileA);
+		m_B = Build(m_FileB);
+
+		m_Scratch = Build(m_FileA);
+		m_Unsorted = Parse(m_Scratch, m_FileA).clone();
+	}
+
+	/*****************************
+	 * Benchmarks
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// parse: Reads and tokenizes document A.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public String[] parse() throws IOException
+	{
+		return Parse(m_Scratch, m_FileA);
+	}
+
+	//-----------------------------------------------------------------------
+	// count: Counts the sorted words of document A.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public Object count() throws Exception
+	{
+		return Count(m_A);
+	}
+
+	//-----------------------------------------------------------------------
+	// dotProduct: Computes the dot product of the two documents.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public long dotProduct()
+	{
+		return DotProduct(m_A, m_B);
+	}
+
+	//-----------------------------------------------------------------------
+	// angle: Computes the angle between the two documents.
+	//-----------------------------------------------------------------------
+	@Benchmark
+	public double angle()
+	{
+		return Angle(m_A, m_B);
+	}
+
+	/*****************************
+	 * Vector class hooks
+	 *****************************/
+
+	// Build: Returns the fully built vector of a file.
+	abstract V Build(String fileName);
+
+	// Parse: Re-reads a file into a vector's word list, returning the list.
+	abstract String[] Parse(V vector, String fileName) throws IOException;
+
+	// Count: Counts a vector's sorted words, returning the counts.
+	abstract Object Count(V vector) throws Exception;
+
+	// DotProduct: Returns the dot product of two vectors.
+	abstract long DotProduct(V A, V B);
+
+	// Angle: Returns the angle between two vectors.
+	abstract double Angle(V A, V B);
+}
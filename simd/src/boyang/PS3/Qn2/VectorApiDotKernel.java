@@ -0,0 +1,155 @@
+/****************************************************************************
+ Class: VectorApiDotKernel
+ Purpose: Implements DotKernel with the incubating Vector API, which the
+ JIT compiles to SIMD instructions.  Compiling and running this class
+ needs "--add-modules jdk.incubator.vector", so it lives in its own
+ source root, simd/src, which is compiled with that option and put on
+ the classpath next to src.  DotKernels only loads it when it is on the
+ classpath and the module is present.
+ 
+ Constructor: VectorApiDotKernel()
+ Behavior: Creates the kernel, using the widest vectors the CPU supports.
+ Throws UnsupportedOperationException if they hold fewer than four ints,
+ since the scalar kernel is then at least as fast.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Class declaration:
+public class VectorApiDotKernel implements DotKernel
+{
+	/*****************************
+	 * Class member variables 
+	 *****************************/
+	// Shapes of the int vectors loaded, and of the long vectors that the
+	// products are summed in.  Each int vector converts into Parts long
+	// vectors, so that no product can overflow.
+	static final VectorSpecies<Integer> Ints = IntVector.SPECIES_PREFERRED;
+	static final VectorSpecies<Long> Longs = LongVector.SPECIES_PREFERRED;
+	static final int Parts = Ints.length() / Longs.length();
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Checks that SIMD is worth using on this CPU.
+	//-----------------------------------------------------------------------
+	public VectorApiDotKernel()
+	{
+		if ((Ints.length() < 4) || (Parts < 1))
+		{
+			throw new UnsupportedOperationException("SIMD vectors are too narrow.");
+		}
+	}
+	
+	//-----------------------------------------------------------------------
+	// Dot: Multiplies Ints.length() entries at a time, widening each half
+	// of the products to longs before summing, then finishes the last 
+	// few entries one by one.
+	//-----------------------------------------------------------------------
+	public long Dot(int[] A, int[] B, int length)
+	{
+		LongVector sum = LongVector.zero(Longs);
+		int bound = Ints.loopBound(length);
+		int i = 0;
+		for (; i<bound; i+=Ints.length())
+		{
+			IntVector a = IntVector.fromArray(Ints, A, i);
+			IntVector b = IntVector.fromArray(Ints, B, i);
+			sum = Accumulate(sum, a, b);
+		}
+		long total = sum.reduceLanes(VectorOperators.ADD);
+		for (; i<length; i++)
+		{
+			total += (long)A[i] * B[i];
+		}
+		return total;
+	}
+	
+	//-----------------------------------------------------------------------
+	// GatherDot: As Dot, but loads the dense entries through the ids with
+	// a gather.
+	//-----------------------------------------------------------------------
+	public long GatherDot(int[] dense, int[] ids, int[] counts, int length)
+	{
+		LongVector sum = LongVector.zero(Longs);
+		int bound = Ints.loopBound(length);
+		int i = 0;
+		for (; i<bound; i+=Ints.length())
+		{
+			IntVector a = IntVector.fromArray(Ints, dense, 0, ids, i);
+			IntVector b = IntVector.fromArray(Ints, counts, i);
+			sum = Accumulate(sum, a, b);
+		}
+		long total = sum.reduceLanes(VectorOperators.ADD);
+		for (; i<length; i++)
+		{
+			total += (long)counts[i] * dense[ids[i]];
+		}
+		return total;
+	}
+	
+	public long SquaredNorm(int[] counts, int length)
+	{
+		return Dot(counts, counts, length);
+	}
+	
+	//-----------------------------------------------------------------------
+	// IntersectDot: Compares each id of A with a block of Ints.length() ids
+	// of B at once.
+	//
+	// Methodology: Every id of B before the block is smaller than the
+	// current id a of A.  Blocks whose last id is below a are skipped
+	// whole; otherwise a, if present in B, lies in the block, and one
+	// vector compare against a broadcast of a finds it.  a is then done,
+	// and the block is kept for the next id of A.  So each id of A costs
+	// one compare, instead of one scalar step for every id of B passed.
+	// The last partial block is finished by ScalarDotKernel.MergeDot.
+	//-----------------------------------------------------------------------
+	public long IntersectDot(int[] Aids, int[] Acounts, int m, int[] Bids, int[] Bcounts, int n)
+	{
+		int width = Ints.length();
+		int Aindex = 0;
+		int Bindex = 0;
+		long sum = 0;
+		while ((Aindex < m) && (Bindex + width <= n))
+		{
+			int id = Aids[Aindex];
+			if (Bids[Bindex + width - 1] < id)
+			{
+				Bindex += width;
+				continue;
+			}
+			VectorMask<Integer> equal = IntVector.fromArray(Ints, Bids, Bindex).eq(id);
+			if (equal.anyTrue())
+			{
+				sum += (long)Acounts[Aindex] * Bcounts[Bindex + equal.firstTrue()];
+			}
+			Aindex++;
+		}
+		return sum + ScalarDotKernel.MergeDot(Aids, Acounts, Aindex, m, Bids, Bcounts, Bindex, n);
+	}
+	
+	public String toString()
+	{
+		return "vector-api(" + Ints.length() + " ints)";
+	}
+	
+	//-----------------------------------------------------------------------
+	// Accumulate: Adds the products of a and b, widened to longs, to sum.
+	//-----------------------------------------------------------------------
+	private static LongVector Accumulate(LongVector sum, IntVector a, IntVector b)
+	{
+		for (int part=0; part<Parts; part++)
+		{
+			LongVector x = (LongVector)a.convertShape(VectorOperators.I2L, Longs, part);
+			LongVector y = (LongVector)b.convertShape(VectorOperators.I2L, Longs, part);
+			sum = sum.add(x.mul(y));
+		}
+		return sum;
+	}
+}
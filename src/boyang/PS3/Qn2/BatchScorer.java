@@ -0,0 +1,135 @@
+/****************************************************************************
+ Class: BatchScorer
+ Purpose: Scores one query against many documents.  The query is expanded
+ once into a dense array indexed by term id, so that each document is
+ scored with a single gather-and-multiply pass over its own entries,
+ which a DotKernel can run with SIMD instructions, instead of a branchy
+ merge of two sorted lists.
+ 
+ Constructor: BatchScorer(TermVector query)
+ Behavior: Prepares to score documents against the query, using
+ DotKernels.Default.
+ 
+ Constructor: BatchScorer(TermVector query, DotKernel kernel)
+ Behavior: As above, using the given kernel.
+ 
+ Public Class Methods:
+ 	long DotProduct(TermVector document) : Returns the dot product of the
+ 		query and a document.
+ 	double Cosine(TermVector document) : Returns the cosine of the angle
+ 		between the query and a document.
+ 	double[] Cosines(TermVector[] documents) : As above, for many.
+ 	double[] Angles(VectorTextFile3[] documents) : Returns the angles
+ 		between the query and many documents.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.util.Arrays;
+
+// Class declaration:
+public class BatchScorer
+{
+	/*****************************
+	 * Class member variables 
+	 *****************************/
+	// The query, and its count of each term id below m_Dense.length
+	TermVector m_Query;
+	int[] m_Dense;
+	
+	// Kernel that computes the dot products
+	DotKernel m_Kernel;
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Expands the query into a dense array.
+	//
+	// Input: The query vector, and optionally the kernel to use.
+	// Properties: On completion, m_Dense[t] is the query's count of term t,
+	// for every t up to the query's largest term id.
+	//-----------------------------------------------------------------------
+	public BatchScorer(TermVector query)
+	{
+		this(query, DotKernels.Default);
+	}
+	
+	public BatchScorer(TermVector query, DotKernel kernel)
+	{
+		m_Query = query;
+		m_Kernel = kernel;
+		int length = query.length();
+		m_Dense = new int[(length == 0) ? 0 : query.getTermId(length-1) + 1];
+		for (int i=0; i<length; i++)
+		{
+			m_Dense[query.getTermId(i)] = query.getCount(i);
+		}
+	}
+	
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// DotProduct: Returns the dot product of the query and a document.
+	//
+	// Input: A document built against the query's dictionary.
+	// Output: The same value as TermVector.DotProduct(query, document).
+	// Methodology: A document's ids are sorted, so the entries whose ids
+	// fall inside m_Dense are a prefix of it, found by binary search.  Over
+	// that prefix, the kernel sums counts[i] * m_Dense[ids[i]]; terms not
+	// in the query add 0.
+	//-----------------------------------------------------------------------
+	public long DotProduct(TermVector document)
+	{
+		if (document.getDictionary() != m_Query.getDictionary())
+		{
+			throw new IllegalArgumentException("Vectors were built against different dictionaries.");
+		}
+		int[] ids = document.m_TermIds;
+		int length = Arrays.binarySearch(ids, m_Dense.length);
+		if (length < 0)
+		{
+			length = -length - 1;
+		}
+		return m_Kernel.GatherDot(m_Dense, ids, document.m_Counts, length);
+	}
+	
+	//-----------------------------------------------------------------------
+	// Cosine: Returns the cosine of the angle between the query and a
+	// document, or NaN if either has no words.
+	//-----------------------------------------------------------------------
+	public double Cosine(TermVector document)
+	{
+		return Math.min(1.0, DotProduct(document) / (m_Query.Norm() * document.Norm()));
+	}
+	
+	//-----------------------------------------------------------------------
+	// Cosines: Returns the cosine of the angle between the query and each
+	// of the documents.
+	//-----------------------------------------------------------------------
+	public double[] Cosines(TermVector[] documents)
+	{
+		double[] cosines = new double[documents.length];
+		for (int i=0; i<documents.length; i++)
+		{
+			cosines[i] = Cosine(documents[i]);
+		}
+		return cosines;
+	}
+	
+	//-----------------------------------------------------------------------
+	// Angles: Returns the angle between the query and each document, as
+	// VectorTextFile3.Angle would.  A document that failed to build has an
+	// angle of NaN.
+	//-----------------------------------------------------------------------
+	public double[] Angles(VectorTextFile3[] documents)
+	{
+		double[] angles = new double[documents.length];
+		for (int i=0; i<documents.length; i++)
+		{
+			TermVector document = documents[i].m_CountedWords;
+			angles[i] = (document == null) ? Double.NaN : Math.acos(Cosine(document));
+		}
+		return angles;
+	}
+}
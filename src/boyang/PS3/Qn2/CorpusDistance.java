@@ -0,0 +1,396 @@
+/****************************************************************************
+ Class: CorpusDistance
+ Purpose: Computes the angle between every pair of documents in a corpus,
+ and writes the resulting N x N matrix as CSV or as compact binary.
+
+ Constructor: CorpusDistance(String[] fileNames, int threads)
+ Behavior: Builds a VectorTextFile3 for every file, in parallel.
+
+ Public Class Methods:
+ 	int size() : Returns the number of documents.
+ 	void WriteMatrix(String outputName) : Computes the angle matrix and
+ 		writes it to the named file.
+ 	void close() : Stops the worker threads.
+
+ Static Methods:
+ 	String[] ListFiles(String[] paths) : Expands a directory into the
+ 		files it contains.
+ 	void main(String[] args) : Command line entry point.
+
+ Binary format (all values big-endian):
+ 	int Magic, int N, then N*N floats holding the angles row by row.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+// Class declaration:
+public class CorpusDistance
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Number of rows and columns in each block of the matrix
+	public static final int BlockSize = 256;
+
+	// First four bytes of a binary matrix file ("DDMX")
+	public static final int Magic = 0x44444D58;
+
+	// Files in the corpus, and the vector built for each one
+	String[] m_FileNames;
+	VectorTextFile3[] m_Vectors;
+
+	// Worker threads
+	ExecutorService m_Pool;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Builds a vector for every file in the corpus.
+	//
+	// Input: The names of the files, and the number of worker threads.
+	// Properties: On completion, m_Vectors[i] is the vector of
+	// m_FileNames[i], built with HashCounting against TermDictionary.Global.
+	// A file that cannot be read gives a vector with no words, and so an
+	// angle of NaN with every other file.  The worker threads are daemons,
+	// so they never keep the JVM alive, and if a build fails they are
+	// stopped before the exception is thrown on.
+	//-----------------------------------------------------------------------
+	public CorpusDistance(String[] fileNames, int threads) throws Exception
+	{
+		m_FileNames = fileNames;
+		m_Vectors = new VectorTextFile3[fileNames.length];
+		m_Pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable task)
+			{
+				Thread thread = new Thread(task, "CorpusDistance");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		try{
+			List<Future<VectorTextFile3>> builds = new ArrayList<Future<VectorTextFile3>>();
+			for (final String fileName : fileNames)
+			{
+				builds.add(m_Pool.submit(new Callable<VectorTextFile3>() {
+					public VectorTextFile3 call()
+					{
+						return new VectorTextFile3(fileName, VectorTextFile3.HashCounting);
+					}
+				}));
+			}
+			for (int i=0; i<fileNames.length; i++)
+			{
+				m_Vectors[i] = builds.get(i).get();
+			}
+		}
+		catch (Exception e)
+		{
+			m_Pool.shutdownNow();
+			throw e;
+		}
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// size: Returns the number of documents in the corpus.
+	//-----------------------------------------------------------------------
+	public int size()
+	{
+		return m_Vectors.length;
+	}
+
+	//-----------------------------------------------------------------------
+	// WriteMatrix: Computes the angle between every pair of documents and
+	// writes the matrix to a file.
+	//
+	// Input: The name of the output file.  A name ending in ".csv" gives a
+	// CSV file with a header row and a first column of file names; any
+	// other name gives the binary format described above.
+	// Output: None
+	// Methodology: The angle is symmetric, so only the upper triangle,
+	// j >= i, is computed, one band of BlockSize rows at a time.  Each band
+	// is split into BlockSize x BlockSize tiles, which are computed in
+	// parallel; a tile keeps its few hundred vectors hot in the cache.
+	// Each band is written into a binary matrix as soon as it is complete,
+	// both as rows and, mirrored, as the same columns of the later rows,
+	// by positioned writes, so only BlockSize rows are ever held in memory.
+	// A CSV file is then written row by row from a temporary binary matrix.
+	//-----------------------------------------------------------------------
+	public void WriteMatrix(String outputName) throws IOException, InterruptedException, ExecutionException
+	{
+		boolean csv = outputName.toLowerCase().endsWith(".csv");
+		File matrix = csv ? File.createTempFile("angles", ".bin") : new File(outputName);
+		try{
+			WriteBinary(matrix);
+			if (csv)
+			{
+				WriteCsv(matrix, outputName);
+			}
+		}
+		finally
+		{
+			if (csv)
+			{
+				matrix.delete();
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// close: Stops the worker threads.
+	//-----------------------------------------------------------------------
+	public void close()
+	{
+		m_Pool.shutdown();
+	}
+
+	/*****************************
+	 * Static Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// ListFiles: Expands the paths given on the command line.
+	//
+	// Input: Either a single directory, or a list of files.
+	// Output: The files in the directory, sorted by name, or the list of
+	// files unchanged.  An IOException is thrown if the directory cannot
+	// be listed.
+	//-----------------------------------------------------------------------
+	public static String[] ListFiles(String[] paths) throws IOException
+	{
+		if ((paths.length == 1) && new File(paths[0]).isDirectory())
+		{
+			File[] files = new File(paths[0]).listFiles();
+			if (files == null)
+			{
+				throw new IOException("Cannot list the files of " + paths[0]);
+			}
+			List<String> names = new ArrayList<String>();
+			for (File file : files)
+			{
+				if (file.isFile())
+				{
+					names.add(file.getPath());
+				}
+			}
+			String[] result = names.toArray(new String[names.size()]);
+			Arrays.sort(result);
+			return result;
+		}
+		return paths;
+	}
+
+	//-----------------------------------------------------------------------
+	// main: Computes the angle matrix of a corpus.
+	//
+	// Input: args[0] is the output file, and args[1..] is either a
+	// directory or a list of files.
+	//-----------------------------------------------------------------------
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 2)
+		{
+			System.out.println("Usage: CorpusDistance <output.csv|output.bin> <directory | file...>");
+			return;
+		}
+
+		String[] fileNames = ListFiles(Arrays.copyOfRange(args, 1, args.length));
+		CorpusDistance corpus = new CorpusDistance(fileNames, Runtime.getRuntime().availableProcessors());
+		try{
+			corpus.WriteMatrix(args[0]);
+		}
+		finally
+		{
+			corpus.close();
+		}
+		System.out.println("Wrote the " + corpus.size() + " x " + corpus.size() + " angle matrix to " + args[0]);
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// WriteBinary: Computes the angle matrix into a file in the binary
+	// format, as described for WriteMatrix.
+	//-----------------------------------------------------------------------
+	private void WriteBinary(File matrix) throws IOException, InterruptedException, ExecutionException
+	{
+		int n = m_Vectors.length;
+		float[][] rows = new float[Math.min(BlockSize, n)][n];
+		ByteBuffer buffer = ByteBuffer.allocate(4 * Math.max(2, n));
+
+		RandomAccessFile file = new RandomAccessFile(matrix, "rw");
+		try{
+			file.setLength(0);
+			FileChannel channel = file.getChannel();
+			buffer.putInt(Magic).putInt(n).flip();
+			WriteFully(channel, buffer, 0);
+
+			for (int rowBegin=0; rowBegin<n; rowBegin+=BlockSize)
+			{
+				int rowEnd = Math.min(n, rowBegin+BlockSize);
+				ComputeBand(rowBegin, rowEnd, rows);
+
+				// Row i from column rowBegin on, and its mirror: column i of
+				// every later row, which the band's rows hold side by side.
+				for (int i=rowBegin; i<rowEnd; i++)
+				{
+					buffer.clear();
+					buffer.asFloatBuffer().put(rows[i-rowBegin], rowBegin, n-rowBegin);
+					buffer.limit(4 * (n-rowBegin));
+					WriteFully(channel, buffer, Offset(i, rowBegin, n));
+				}
+				for (int j=rowEnd; j<n; j++)
+				{
+					buffer.clear();
+					for (int i=rowBegin; i<rowEnd; i++)
+					{
+						buffer.putFloat(rows[i-rowBegin][j]);
+					}
+					buffer.flip();
+					WriteFully(channel, buffer, Offset(j, rowBegin, n));
+				}
+			}
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// WriteCsv: Writes a binary matrix as CSV, with a header row and a first
+	// column of file names.
+	//-----------------------------------------------------------------------
+	private void WriteCsv(File matrix, String outputName) throws IOException
+	{
+		DataInputStream binary = null;
+		BufferedWriter text = null;
+		try{
+			binary = new DataInputStream(new BufferedInputStream(new FileInputStream(matrix), 1 << 20));
+			binary.readInt();
+			int n = binary.readInt();
+			text = new BufferedWriter(new FileWriter(outputName));
+			text.write("file");
+			for (String fileName : m_FileNames)
+			{
+				text.write(',');
+				text.write(Quote(fileName));
+			}
+			text.newLine();
+			for (int i=0; i<n; i++)
+			{
+				text.write(Quote(m_FileNames[i]));
+				for (int j=0; j<n; j++)
+				{
+					text.write(',');
+					text.write(Float.toString(binary.readFloat()));
+				}
+				text.newLine();
+			}
+		}
+		finally
+		{
+			if (binary != null){
+				binary.close();
+			}
+			if (text != null){
+				text.close();
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// ComputeBand: Fills rows[i-rowBegin][j], for documents i in
+	// [rowBegin..rowEnd-1] and j >= i, with the angle between documents i
+	// and j, one parallel task per tile of BlockSize columns from rowBegin
+	// on.  The tile on the diagonal computes j >= i only and mirrors it
+	// within the band, so rows[i-rowBegin][j] is filled for every j >=
+	// rowBegin.
+	//-----------------------------------------------------------------------
+	private void ComputeBand(final int rowBegin, final int rowEnd, final float[][] rows) throws InterruptedException, ExecutionException
+	{
+		List<Future<?>> tiles = new ArrayList<Future<?>>();
+		for (int colBegin=rowBegin; colBegin<m_Vectors.length; colBegin+=BlockSize)
+		{
+			final int tileBegin = colBegin;
+			final int tileEnd = Math.min(m_Vectors.length, colBegin+BlockSize);
+			tiles.add(m_Pool.submit(new Runnable() {
+				public void run()
+				{
+					for (int i=rowBegin; i<rowEnd; i++)
+					{
+						float[] row = rows[i-rowBegin];
+						for (int j=Math.max(i, tileBegin); j<tileEnd; j++)
+						{
+							row[j] = (float)VectorTextFile3.Angle(m_Vectors[i], m_Vectors[j]);
+							if (j < rowEnd)
+							{
+								rows[j-rowBegin][i] = row[j];
+							}
+						}
+					}
+				}
+			}));
+		}
+		for (Future<?> tile : tiles)
+		{
+			tile.get();
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// Offset: Returns the position in a binary matrix of element (i, j).
+	//-----------------------------------------------------------------------
+	private static long Offset(int i, int j, int n)
+	{
+		return 8 + 4 * ((long)i * n + j);
+	}
+
+	//-----------------------------------------------------------------------
+	// WriteFully: Writes the rest of a buffer at a position of a channel.
+	//-----------------------------------------------------------------------
+	private static void WriteFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			position += channel.write(buffer, position);
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// Quote: Quotes a file name for CSV, if it contains a comma or a quote.
+	//-----------------------------------------------------------------------
+	private static String Quote(String value)
+	{
+		if ((value.indexOf(',') < 0) && (value.indexOf('"') < 0))
+		{
+			return value;
+		}
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+}
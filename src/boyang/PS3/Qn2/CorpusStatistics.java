@@ -0,0 +1,215 @@
+/****************************************************************************
+ Class: CorpusStatistics
+ Purpose: Keeps the statistics of a collection of documents needed to
+ weight their words: the number of documents, the number containing each
+ term (its document frequency), and their total length.  Documents can
+ be added and removed at any time, each in time proportional to its
+ number of distinct words.
+
+ Constructor: CorpusStatistics(TermDictionary dictionary)
+ Behavior: Creates empty statistics for vectors built against the
+ dictionary.
+
+ Public Class Methods:
+ 	void Add(TermVector vector) : Counts a document.
+ 	void Add(VectorTextFile3 vector) : Counts a document.
+ 	void Remove(TermVector vector) : Stops counting a document.
+ 	int getDocumentCount() : Returns the number of documents.
+ 	int getDocumentFrequency(int termId) : Returns the number of documents
+ 		containing a term.
+ 	double getAverageLength() : Returns the average number of words in a
+ 		document.
+ 	double Idf(int termId) : Returns the inverse document frequency of a
+ 		term, as used by TF-IDF.
+ 	double Bm25Idf(int termId) : Returns the inverse document frequency of
+ 		a term, as used by BM25.
+ 	TermDictionary getDictionary() : Returns the dictionary of the ids.
+
+ A changed document is recounted by removing its old vector and adding
+ its new one.  Safe to use from several threads; see WeightedVector for
+ reading many frequencies at once.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.util.Arrays;
+
+// Class declaration:
+public class CorpusStatistics
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Dictionary that the term ids refer to
+	TermDictionary m_Dictionary;
+
+	// Number of documents containing each term id, grown as new ids appear
+	int[] m_DocFrequencies;
+
+	// Number of documents, and their total number of words
+	int m_DocCount;
+	long m_TotalLength;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates empty statistics.
+	//
+	// Input: The dictionary that counted vectors are built against.
+	//-----------------------------------------------------------------------
+	public CorpusStatistics(TermDictionary dictionary)
+	{
+		m_Dictionary = dictionary;
+		m_DocFrequencies = new int[Math.max(16, dictionary.size())];
+		m_DocCount = 0;
+		m_TotalLength = 0;
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Add: Counts a document.
+	//
+	// Input: The document's vector, built against the statistics' dictionary.
+	// Properties: Each of its terms has its document frequency raised by 1,
+	// whatever its count.
+	//-----------------------------------------------------------------------
+	public synchronized void Add(TermVector vector)
+	{
+		CheckDictionary(vector);
+		int maxId = (vector.length() == 0) ? -1 : vector.getTermId(vector.length() - 1);
+		if (maxId >= m_DocFrequencies.length)
+		{
+			m_DocFrequencies = Arrays.copyOf(m_DocFrequencies, Math.max(maxId + 1, m_DocFrequencies.length * 2));
+		}
+		for (int i=0; i<vector.length(); i++)
+		{
+			m_DocFrequencies[vector.getTermId(i)]++;
+			m_TotalLength += vector.getCount(i);
+		}
+		m_DocCount++;
+	}
+
+	//-----------------------------------------------------------------------
+	// Add: Counts a VectorTextFile3.  A vector whose file failed to load is
+	// counted as a document with no words.
+	//-----------------------------------------------------------------------
+	public void Add(VectorTextFile3 vector)
+	{
+		if (vector.m_CountedWords == null)
+		{
+			synchronized (this)
+			{
+				m_DocCount++;
+			}
+			return;
+		}
+		Add(vector.m_CountedWords);
+	}
+
+	//-----------------------------------------------------------------------
+	// Remove: Stops counting a document, the reverse of Add.
+	//
+	// Input: The vector the document was added with.
+	// Assumptions: The vector was added and not yet removed; otherwise an
+	// IllegalArgumentException may be thrown, and the statistics are wrong.
+	//-----------------------------------------------------------------------
+	public synchronized void Remove(TermVector vector)
+	{
+		CheckDictionary(vector);
+		if (m_DocCount == 0)
+		{
+			throw new IllegalArgumentException("No document to remove.");
+		}
+		for (int i=0; i<vector.length(); i++)
+		{
+			int term = vector.getTermId(i);
+			if ((term >= m_DocFrequencies.length) || (m_DocFrequencies[term] == 0))
+			{
+				throw new IllegalArgumentException("Removed a document that was not added: " + m_Dictionary.getTerm(term));
+			}
+		}
+		for (int i=0; i<vector.length(); i++)
+		{
+			m_DocFrequencies[vector.getTermId(i)]--;
+			m_TotalLength -= vector.getCount(i);
+		}
+		m_DocCount--;
+	}
+
+	//-----------------------------------------------------------------------
+	// getDocumentCount: Returns the number of documents counted.
+	//-----------------------------------------------------------------------
+	public synchronized int getDocumentCount()
+	{
+		return m_DocCount;
+	}
+
+	//-----------------------------------------------------------------------
+	// getDocumentFrequency: Returns the number of documents containing a
+	// term, 0 for a term never seen.
+	//-----------------------------------------------------------------------
+	public synchronized int getDocumentFrequency(int termId)
+	{
+		return (termId < m_DocFrequencies.length) ? m_DocFrequencies[termId] : 0;
+	}
+
+	//-----------------------------------------------------------------------
+	// getAverageLength: Returns the average number of words in a document,
+	// or 0 with no documents.
+	//-----------------------------------------------------------------------
+	public synchronized double getAverageLength()
+	{
+		return (m_DocCount == 0) ? 0 : (double)m_TotalLength / m_DocCount;
+	}
+
+	//-----------------------------------------------------------------------
+	// Idf: Returns the inverse document frequency of a term for TF-IDF.
+	//
+	// Output: ln((1 + N) / (1 + df)) + 1, for N documents of which df
+	// contain the term.  Adding 1 to both counts keeps it finite for terms
+	// not yet seen, and the final 1 keeps terms in every document from
+	// being weighted 0.
+	//-----------------------------------------------------------------------
+	public synchronized double Idf(int termId)
+	{
+		return Math.log((1.0 + m_DocCount) / (1.0 + getDocumentFrequency(termId))) + 1;
+	}
+
+	//-----------------------------------------------------------------------
+	// Bm25Idf: Returns the inverse document frequency of a term for BM25.
+	//
+	// Output: ln(1 + (N - df + 0.5) / (df + 0.5)), for N documents of which
+	// df contain the term.  Always positive, unlike the original form
+	// without the 1, which is negative for terms in most documents.
+	//-----------------------------------------------------------------------
+	public synchronized double Bm25Idf(int termId)
+	{
+		int df = getDocumentFrequency(termId);
+		return Math.log(1 + (m_DocCount - df + 0.5) / (df + 0.5));
+	}
+
+	//-----------------------------------------------------------------------
+	// getDictionary: Returns the dictionary that the term ids refer to.
+	//-----------------------------------------------------------------------
+	public TermDictionary getDictionary()
+	{
+		return m_Dictionary;
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// CheckDictionary: Throws if a vector uses a different dictionary.
+	//-----------------------------------------------------------------------
+	private void CheckDictionary(TermVector vector)
+	{
+		if (vector.getDictionary() != m_Dictionary)
+		{
+			throw new IllegalArgumentException("Vector was built against a different dictionary.");
+		}
+	}
+}
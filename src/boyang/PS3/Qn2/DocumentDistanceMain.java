@@ -3,7 +3,14 @@ package boyang.PS3.Qn2;
 public class DocumentDistanceMain 
 {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
+		// With arguments, compute the angle matrix of a whole corpus:
+		// <output.csv|output.bin> <directory | file...>
+		if (args.length > 0) {
+			CorpusDistance.main(args);
+			return;
+		}
+
 		VectorTextFile3 A = null;
 		VectorTextFile3 B = null;
 		try {
@@ -0,0 +1,64 @@
+/****************************************************************************
+ Class: DocumentPair
+ Purpose: Contains a pair of document ids and the angle between them.
+ 
+ Constructor: DocumentPair(int first, int second, double angle)
+ Behavior: Sets the pair to the specified documents and angle.
+ 
+ Public Class Methods:
+ 	int getFirst() : Returns the smaller document id.
+ 	int getSecond() : Returns the larger document id.
+ 	double getAngle() : Returns the angle between the documents.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+// Class declaration:
+public class DocumentPair
+{
+	/*****************************
+	 * Class member variables 
+	 *****************************/
+	int first;
+	int second;
+	double angle;
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Sets the document ids and the angle.
+	//-----------------------------------------------------------------------
+	DocumentPair(int f, int s, double a)
+	{
+		first = f;
+		second = s;
+		angle = a;
+	}
+	
+	//-----------------------------------------------------------------------
+	// getFirst: Returns the smaller document id.
+	//-----------------------------------------------------------------------
+	public int getFirst()
+	{
+		return first;
+	}
+	
+	//-----------------------------------------------------------------------
+	// getSecond: Returns the larger document id.
+	//-----------------------------------------------------------------------
+	public int getSecond()
+	{
+		return second;
+	}
+	
+	//-----------------------------------------------------------------------
+	// getAngle: Returns the angle between the two documents.
+	//-----------------------------------------------------------------------
+	public double getAngle()
+	{
+		return angle;
+	}
+	
+	public String toString() {
+		return "["+first+", "+second+", "+angle+"]";
+	}
+}
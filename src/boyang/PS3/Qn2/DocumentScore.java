@@ -0,0 +1,65 @@
+/****************************************************************************
+ Class: DocumentScore
+ Purpose: Contains a pair consisting of a document id and its similarity 
+ to a query.
+ 
+ Constructor: DocumentScore(int docId, double cosine)
+ Behavior: Sets the pair to the specified document id and cosine.
+ 
+ Public Class Methods:
+ 	int getDocId() : Returns the document id.
+ 	double getCosine() : Returns the cosine of the angle to the query.
+ 	double getAngle() : Returns the angle to the query.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+// Class declaration:
+public class DocumentScore
+{
+	/*****************************
+	 * Class member variables 
+	 *****************************/
+	int docId;
+	double cosine;
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Sets the document id and the cosine.
+	//-----------------------------------------------------------------------
+	DocumentScore(int d, double c)
+	{
+		docId = d;
+		cosine = c;
+	}
+	
+	//-----------------------------------------------------------------------
+	// getDocId: Returns the document id.
+	//-----------------------------------------------------------------------
+	public int getDocId()
+	{
+		return docId;
+	}
+	
+	//-----------------------------------------------------------------------
+	// getCosine: Returns the cosine of the angle between the document and 
+	// the query.
+	//-----------------------------------------------------------------------
+	public double getCosine()
+	{
+		return cosine;
+	}
+	
+	//-----------------------------------------------------------------------
+	// getAngle: Returns the angle between the document and the query, as 
+	// VectorTextFile3.Angle would.
+	//-----------------------------------------------------------------------
+	public double getAngle()
+	{
+		return Math.acos(Math.min(1.0, cosine));
+	}
+	
+	public String toString() {
+		return "["+docId+", "+cosine+"]";
+	}
+}
@@ -0,0 +1,54 @@
+/****************************************************************************
+ Interface: DotKernel
+ Purpose: Computes the inner loops of dot products and norms over int
+ arrays, so that they can be run with SIMD instructions where the JVM
+ supports them.  See DotKernels for choosing an implementation.
+ 
+ Methods:
+ 	long Dot(int[] A, int[] B, int length) : Returns the dot product of
+ 		two dense arrays.
+ 	long GatherDot(int[] dense, int[] ids, int[] counts, int length) :
+ 		Returns the dot product of a sparse vector and a dense one.
+ 	long SquaredNorm(int[] counts, int length) : Returns the sum of the
+ 		squared counts.
+ 	long IntersectDot(int[] Aids, int[] Acounts, int m, int[] Bids,
+ 		int[] Bcounts, int n) : Returns the dot product of two sparse
+ 		vectors with sorted ids.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+// Interface declaration:
+public interface DotKernel
+{
+	//-----------------------------------------------------------------------
+	// Dot: Returns the sum of A[i]*B[i] over the first length entries, 
+	// accumulated in a long.
+	//-----------------------------------------------------------------------
+	long Dot(int[] A, int[] B, int length);
+	
+	//-----------------------------------------------------------------------
+	// GatherDot: Returns the sum of counts[i]*dense[ids[i]] over the first
+	// length entries, accumulated in a long.
+	//
+	// Assumptions: Every id is a valid index into dense.
+	//-----------------------------------------------------------------------
+	long GatherDot(int[] dense, int[] ids, int[] counts, int length);
+	
+	//-----------------------------------------------------------------------
+	// SquaredNorm: Returns the sum of counts[i]*counts[i] over the first
+	// length entries, accumulated in a long.
+	//-----------------------------------------------------------------------
+	long SquaredNorm(int[] counts, int length);
+	
+	//-----------------------------------------------------------------------
+	// IntersectDot: Returns the sum of Acounts[i]*Bcounts[j] over the pairs
+	// of entries with Aids[i] == Bids[j], accumulated in a long.
+	//
+	// Input: The first m entries of the sparse vector A, and the first n of
+	// B, each as parallel arrays of ids and counts.
+	// Assumptions: The ids of each vector are distinct and increasing.
+	//-----------------------------------------------------------------------
+	long IntersectDot(int[] Aids, int[] Acounts, int m, int[] Bids, int[] Bcounts, int n);
+}
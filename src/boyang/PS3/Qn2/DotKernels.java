@@ -0,0 +1,54 @@
+/****************************************************************************
+ Class: DotKernels
+ Purpose: Chooses the fastest DotKernel that the running JVM supports.
+ 
+ Static Members:
+ 	DotKernel Default : The kernel chosen when the class is loaded.
+ 
+ Static Methods:
+ 	DotKernel Select() : Chooses a kernel.
+ 
+ The Vector API kernel is used when simd/src is compiled onto the
+ classpath, the JVM was started with "--add-modules jdk.incubator.vector"
+ and the CPU has wide enough SIMD registers.  Setting the system property
+ boyang.PS3.Qn2.DotKernel to "scalar" forces the scalar kernel.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+// Class declaration:
+public class DotKernels
+{
+	// Name of the system property that can force the scalar kernel
+	public static final String PropertyName = "boyang.PS3.Qn2.DotKernel";
+	
+	// Kernel used by BatchScorer and TermVector
+	public static final DotKernel Default = Select();
+	
+	//-----------------------------------------------------------------------
+	// Select: Chooses a kernel.
+	//
+	// Output: A VectorApiDotKernel if it can be loaded and is worthwhile,
+	// and a ScalarDotKernel otherwise.
+	// Methodology: The Vector API kernel is loaded by name, from its own
+	// source root, so that src compiles with a plain javac and runs on a
+	// JVM without the jdk.incubator.vector module.  If the class is not on
+	// the classpath, or cannot link, the error is caught.
+	//-----------------------------------------------------------------------
+	public static DotKernel Select()
+	{
+		if (!"scalar".equals(System.getProperty(PropertyName)) && (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()))
+		{
+			try{
+				Class<?> kernel = Class.forName("boyang.PS3.Qn2.VectorApiDotKernel");
+				return (DotKernel)kernel.getDeclaredConstructor().newInstance();
+			}
+			catch (LinkageError | Exception e)
+			{
+				// Fall back to the scalar kernel.
+			}
+		}
+		return new ScalarDotKernel();
+	}
+}
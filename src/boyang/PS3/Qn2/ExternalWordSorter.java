@@ -0,0 +1,485 @@
+/****************************************************************************
+ Class: ExternalWordSorter
+ Purpose: Counts the words of a text file too large to sort in memory.
+ Words are gathered into runs that fit a memory budget; each run is
+ sorted, collapsed into (word, count) pairs and spilled to a temporary
+ file, and the runs are then merged, adding up the counts of equal words.
+
+ Constructor: ExternalWordSorter(long memoryBudget, File directory)
+ Behavior: Creates a sorter that holds at most about memoryBudget bytes
+ of words at once, spilling runs into the given directory (or the
+ default temporary directory, if null).
+
+ Constructor: ExternalWordSorter(long memoryBudget, File directory,
+ 	VocabularyFilter filter)
+ Behavior: As above, dropping the words the filter does not accept before
+ they are buffered.
+
+ Public Class Methods:
+ 	TermVector Count(String fileName, TermDictionary dictionary) : Counts
+ 		the words of a file.
+ 	long getTokenCount() : Returns the number of words counted.
+ 	int getRunCount() : Returns the number of runs spilled.
+
+ Run file format: pairs of (int byte count, UTF-8 bytes of the word,
+ int count), in increasing order of word.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Class declaration:
+public class ExternalWordSorter implements TokenSink
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Largest number of runs merged at once; more runs are first merged in
+	// groups of this many, so that few files are open at a time.
+	public static final int MaxFanIn = 64;
+
+	// Estimated bytes held per distinct word of a run, besides its
+	// characters: the String and its array, and its slot in the intern
+	// table.  Every occurrence also costs a reference in both the run and
+	// the scratch array of the merge sort.
+	static final int WordOverhead = 72;
+	static final int OccurrenceOverhead = 16;
+
+	// Size of the buffer of each run file
+	static final int RunBufferSize = 1 << 16;
+
+	// Memory budget for buffered words, and where runs are spilled
+	long m_MemoryBudget;
+	File m_Directory;
+
+	// Filter of the words counted, or null for every word
+	VocabularyFilter m_Filter;
+
+	// Words of the current run, how many there are, and their estimated
+	// size.  Words are interned, so repeats within a run share one String.
+	String[] m_Run;
+	int m_RunLength;
+	long m_RunBytes;
+	WordInterner m_Interner;
+
+	// Runs spilled so far
+	List<File> m_Runs;
+	int m_RunCount;
+
+	// Number of words counted
+	long m_TokenCount;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates a sorter with the given memory budget.
+	//
+	// Input: The approximate number of bytes of words to hold in memory at
+	// once, and the directory for run files, or null for the default.
+	//-----------------------------------------------------------------------
+	public ExternalWordSorter(long memoryBudget, File directory)
+	{
+		this(memoryBudget, directory, null);
+	}
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates a sorter that counts only the words a filter
+	// accepts (see VocabularyFilter.Accepts), or every word if it is null.
+	//-----------------------------------------------------------------------
+	public ExternalWordSorter(long memoryBudget, File directory, VocabularyFilter filter)
+	{
+		m_MemoryBudget = memoryBudget;
+		m_Directory = directory;
+		m_Filter = filter;
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Count: Counts the words of a file.
+	//
+	// Input: String containing a filename, and the dictionary in which to
+	// look up the words.
+	// Output: A TermVector with one entry per distinct word.
+	// Properties: At most about m_MemoryBudget bytes of words, plus the
+	// distinct words of the vector, are held at once.  Run files are
+	// deleted before returning, even on failure.
+	// Methodology: Words are buffered until the budget is reached, then the
+	// run is sorted and written out collapsed.  A file that fits in one
+	// run is counted without being spilled.  Otherwise the runs are merged
+	// MaxFanIn at a time until at most MaxFanIn remain, and those are merged
+	// with a priority queue holding the next word of each run; equal words
+	// come out together, so their counts are added as they are met.
+	//-----------------------------------------------------------------------
+	public TermVector Count(String fileName, TermDictionary dictionary) throws IOException
+	{
+		m_Run = new String[1024];
+		m_Interner = new WordInterner();
+		m_RunLength = 0;
+		m_RunBytes = 0;
+		m_Runs = new ArrayList<File>();
+		m_RunCount = 0;
+		m_TokenCount = 0;
+
+		try{
+			try{
+				WordTokenizer.TokenizeFile(fileName, this);
+			}
+			catch (UncheckedIOException e)
+			{
+				throw e.getCause();
+			}
+
+			PairCollector pairs = new PairCollector(dictionary);
+			if (m_Runs.isEmpty())
+			{
+				// Everything fit in memory: count the sorted run directly.
+				SortRun();
+				for (int i=0; i<m_RunLength; )
+				{
+					int j = i + 1;
+					while ((j < m_RunLength) && m_Run[j].equals(m_Run[i]))
+					{
+						j++;
+					}
+					pairs.Add(m_Run[i], j - i);
+					i = j;
+				}
+				m_Run = null;
+				return pairs.ToVector();
+			}
+
+			if (m_RunLength > 0)
+			{
+				Spill();
+			}
+			m_Run = null;
+			while (m_Runs.size() > MaxFanIn)
+			{
+				// Merge the oldest runs into one new run.
+				List<File> group = new ArrayList<File>(m_Runs.subList(0, MaxFanIn));
+				File merged = NewRunFile();
+				m_Runs.add(merged);
+				DataOutputStream out = OpenRun(merged);
+				try{
+					MergeRuns(group, out, null);
+				}
+				finally
+				{
+					out.close();
+				}
+				m_Runs.removeAll(group);
+				for (File run : group)
+				{
+					run.delete();
+				}
+			}
+			MergeRuns(m_Runs, null, pairs);
+			return pairs.ToVector();
+		}
+		finally
+		{
+			for (File run : m_Runs)
+			{
+				run.delete();
+			}
+			m_Runs.clear();
+			m_Run = null;
+			m_Interner = null;
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// addToken: Adds a word to the current run, spilling the run once it
+	// reaches the memory budget.  Called by the tokenizer.
+	//-----------------------------------------------------------------------
+	public void addToken(char[] word, int length)
+	{
+		if ((m_Filter != null) && !m_Filter.Accepts(word, length))
+		{
+			return;
+		}
+		if (m_RunLength == m_Run.length)
+		{
+			m_Run = Arrays.copyOf(m_Run, m_Run.length * 2);
+		}
+		int distinct = m_Interner.size();
+		m_Run[m_RunLength] = m_Interner.intern(word, length);
+		m_RunLength++;
+		m_RunBytes += OccurrenceOverhead;
+		if (m_Interner.size() > distinct)
+		{
+			m_RunBytes += WordOverhead + length;
+		}
+		m_TokenCount++;
+
+		if (m_RunBytes >= m_MemoryBudget)
+		{
+			try{
+				Spill();
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// getTokenCount: Returns the number of words counted by the last Count.
+	//-----------------------------------------------------------------------
+	public long getTokenCount()
+	{
+		return m_TokenCount;
+	}
+
+	//-----------------------------------------------------------------------
+	// getRunCount: Returns the number of runs spilled by the last Count.
+	//-----------------------------------------------------------------------
+	public int getRunCount()
+	{
+		return m_RunCount;
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// SortRun: Sorts the current run with VectorTextFile3's merge sort,
+	// whose comparisons of repeated (interned) words return at once.
+	//-----------------------------------------------------------------------
+	private void SortRun()
+	{
+		if (m_RunLength > 1)
+		{
+			String[] scratch = Arrays.copyOf(m_Run, m_RunLength);
+			VectorTextFile3.SortInto(scratch, m_Run, 0, m_RunLength - 1);
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// Spill: Sorts the current run, writes it to a new run file as (word,
+	// count) pairs, and empties it.
+	//-----------------------------------------------------------------------
+	private void Spill() throws IOException
+	{
+		SortRun();
+		File file = NewRunFile();
+		m_Runs.add(file);
+		m_RunCount++;
+
+		DataOutputStream out = OpenRun(file);
+		try{
+			for (int i=0; i<m_RunLength; )
+			{
+				int j = i + 1;
+				while ((j < m_RunLength) && m_Run[j].equals(m_Run[i]))
+				{
+					j++;
+				}
+				WritePair(out, m_Run[i], j - i);
+				i = j;
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+
+		Arrays.fill(m_Run, 0, m_RunLength, null);
+		m_Interner.clear();
+		m_RunLength = 0;
+		m_RunBytes = 0;
+	}
+
+	//-----------------------------------------------------------------------
+	// MergeRuns: Merges sorted runs, adding up the counts of equal words.
+	//
+	// Input: The run files, and where to send the merged pairs: either a
+	// stream to write them to, or a collector (the other is null).
+	//-----------------------------------------------------------------------
+	private void MergeRuns(List<File> runs, DataOutputStream out, PairCollector pairs) throws IOException
+	{
+		PriorityQueue<RunReader> heap = new PriorityQueue<RunReader>(Math.max(1, runs.size()));
+		List<RunReader> readers = new ArrayList<RunReader>();
+		try{
+			for (File run : runs)
+			{
+				RunReader reader = new RunReader(run);
+				readers.add(reader);
+				if (reader.Next())
+				{
+					heap.add(reader);
+				}
+			}
+
+			while (!heap.isEmpty())
+			{
+				// Take every run whose next word is the smallest.
+				RunReader reader = heap.poll();
+				String word = reader.m_Word;
+				long count = reader.m_Count;
+				if (reader.Next())
+				{
+					heap.add(reader);
+				}
+				while (!heap.isEmpty() && heap.peek().m_Word.equals(word))
+				{
+					reader = heap.poll();
+					count += reader.m_Count;
+					if (reader.Next())
+					{
+						heap.add(reader);
+					}
+				}
+
+				if (count > Integer.MAX_VALUE)
+				{
+					throw new IOException("Word occurs too often to count: " + word);
+				}
+				if (out != null)
+				{
+					WritePair(out, word, (int)count);
+				}
+				else
+				{
+					pairs.Add(word, (int)count);
+				}
+			}
+		}
+		finally
+		{
+			for (RunReader reader : readers)
+			{
+				reader.close();
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// NewRunFile: Creates an empty temporary run file.  Count deletes it, so
+	// it is not registered with deleteOnExit, which would keep its name in
+	// memory until the JVM exits.
+	//-----------------------------------------------------------------------
+	private File NewRunFile() throws IOException
+	{
+		return File.createTempFile("words-", ".run", m_Directory);
+	}
+
+	//-----------------------------------------------------------------------
+	// OpenRun: Opens a run file for writing.
+	//-----------------------------------------------------------------------
+	private static DataOutputStream OpenRun(File file) throws IOException
+	{
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), RunBufferSize));
+	}
+
+	//-----------------------------------------------------------------------
+	// WritePair: Writes one (word, count) pair to a run file.  The length
+	// is written as an int, since a word may be longer than writeUTF allows.
+	//-----------------------------------------------------------------------
+	private static void WritePair(DataOutputStream out, String word, int count) throws IOException
+	{
+		byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		out.writeInt(count);
+	}
+
+	/****************************************************************************
+	 Class: RunReader
+	 Purpose: Reads the pairs of a run file one at a time, ordered in the
+	 merge's priority queue by its current word.
+	 ***************************************************************************/
+	private static class RunReader implements Comparable<RunReader>
+	{
+		DataInputStream m_In;
+		String m_Word;
+		int m_Count;
+
+		RunReader(File file) throws IOException
+		{
+			m_In = new DataInputStream(new BufferedInputStream(new FileInputStream(file), RunBufferSize));
+		}
+
+		// Next: Reads the next pair, returning false at the end of the run.
+		boolean Next() throws IOException
+		{
+			int length;
+			try{
+				length = m_In.readInt();
+			}
+			catch (EOFException e)
+			{
+				return false;
+			}
+			byte[] bytes = new byte[length];
+			m_In.readFully(bytes);
+			m_Word = new String(bytes, StandardCharsets.UTF_8);
+			m_Count = m_In.readInt();
+			return true;
+		}
+
+		public int compareTo(RunReader other)
+		{
+			return m_Word.compareTo(other.m_Word);
+		}
+
+		void close() throws IOException
+		{
+			m_In.close();
+		}
+	}
+
+	/****************************************************************************
+	 Class: PairCollector
+	 Purpose: Gathers (word, count) pairs, one per distinct word, into the
+	 arrays of a TermVector.
+	 ***************************************************************************/
+	private static class PairCollector
+	{
+		TermDictionary m_Dictionary;
+		int[] m_TermIds = new int[1024];
+		int[] m_Counts = new int[1024];
+		int m_Length = 0;
+
+		PairCollector(TermDictionary dictionary)
+		{
+			m_Dictionary = dictionary;
+		}
+
+		void Add(String word, int count)
+		{
+			if (m_Length == m_TermIds.length)
+			{
+				m_TermIds = Arrays.copyOf(m_TermIds, m_Length * 2);
+				m_Counts = Arrays.copyOf(m_Counts, m_Length * 2);
+			}
+			m_TermIds[m_Length] = m_Dictionary.getId(word);
+			m_Counts[m_Length] = count;
+			m_Length++;
+		}
+
+		TermVector ToVector()
+		{
+			return new TermVector(m_Dictionary, m_TermIds, m_Counts, m_Length);
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/****************************************************************************
+ Class: FileTextReader
+ Purpose: Streams the raw bytes of a text file in large blocks, using a
+ FileChannel with a direct buffer for ordinary files and memory-mapped
+ windows for large ones.
+
+ Constructor: FileTextReader(String fileName)
+ Behavior: Opens the specified file for reading.
+
+ Constructor: FileTextReader(String fileName, long begin, long end)
+ Behavior: Opens the specified file for reading bytes [begin, end) only.
+
+ Public Class Methods:
+ 	long size() : Returns the size of the file, in bytes.
+ 	ByteBuffer nextBlock() : Returns the next block of raw bytes, or null
+ 		at the end of the file.
+ 	long WordBoundary(long position) : Returns the first position, at or
+ 		after the given one, at which no word is cut in half.
+ 	void close() : Closes the file.
+
+ Static Methods:
+ 	char Normalize(byte b) : Returns the normalized form of a byte.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Class declaration:
+public class FileTextReader implements Closeable
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Size of the direct buffer used for ordinary reads
+	public static final int BufferSize = 1 << 20;
+
+	// Files at least this large are memory-mapped instead of read
+	public static final long MapThreshold = 64L << 20;
+
+	// Size of each memory-mapped window (a single mapping cannot exceed 2 GB)
+	public static final long MapWindowSize = 1L << 30;
+
+	// Lookup table giving the normalized form of every byte value:
+	// a lower-case letter, a space (for ' ' and '\n'), or 0 (drop).
+	private static final char[] NormalTable = new char[256];
+
+	static
+	{
+		for (int i=0; i<256; i++)
+		{
+			char c = Character.toLowerCase((char)i);
+			if (Character.isLetter(c))
+			{
+				NormalTable[i] = c;
+			}
+			else if ((c == ' ') || (c == '\n'))
+			{
+				NormalTable[i] = ' ';
+			}
+		}
+	}
+
+	// The stream and channel for the open file
+	FileInputStream m_Stream;
+	FileChannel m_Channel;
+
+	// Size of the file, and the position of the next byte and end of the
+	// range to read
+	long m_Size;
+	long m_Position;
+	long m_End;
+
+	// Direct buffer reused between reads (null when memory-mapping)
+	ByteBuffer m_Buffer;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Opens the specified file for reading.
+	//
+	// Input: String containing a filename
+	// Assumptions: fileName is a text file that exists on disk.
+	//-----------------------------------------------------------------------
+	public FileTextReader(String fileName) throws IOException
+	{
+		this(fileName, 0, Long.MAX_VALUE);
+	}
+
+	//-----------------------------------------------------------------------
+	// Constructor: Opens the specified file for reading part of it.
+	//
+	// Input: String containing a filename, the position of the first byte
+	// to read, and the position just past the last one.
+	// Assumptions: fileName is a text file that exists on disk.
+	// Properties: An end beyond the end of the file is taken as the end of
+	// the file.  size() still returns the size of the whole file.
+	//-----------------------------------------------------------------------
+	public FileTextReader(String fileName, long begin, long end) throws IOException
+	{
+		m_Stream = new FileInputStream(fileName);
+		m_Channel = m_Stream.getChannel();
+		m_Size = m_Channel.size();
+		m_Position = Math.min(begin, m_Size);
+		m_End = Math.max(m_Position, Math.min(end, m_Size));
+
+		// Small ranges are read through one reusable direct buffer.
+		if (m_End - m_Position < MapThreshold)
+		{
+			m_Buffer = ByteBuffer.allocateDirect((int)Math.max(1, Math.min(BufferSize, m_End - m_Position)));
+		}
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// size: Returns the size of the file, in bytes.
+	//-----------------------------------------------------------------------
+	public long size()
+	{
+		return m_Size;
+	}
+
+	//-----------------------------------------------------------------------
+	// nextBlock: Returns the next block of raw bytes from the file.
+	//
+	// Input: None.
+	// Output: A buffer positioned at the first unread byte, or null once
+	// the whole file (or range) has been read.
+	// Properties: The returned buffer is only valid until the next call.
+	// Ranges of at least MapThreshold bytes are mapped in windows of
+	// MapWindowSize bytes, so files beyond 2 GB are handled.
+	//-----------------------------------------------------------------------
+	public ByteBuffer nextBlock() throws IOException
+	{
+		if (m_Position >= m_End)
+		{
+			return null;
+		}
+
+		if (m_Buffer == null)
+		{
+			// Map the next window of the file.
+			long length = Math.min(MapWindowSize, m_End - m_Position);
+			ByteBuffer window = m_Channel.map(FileChannel.MapMode.READ_ONLY, m_Position, length);
+			m_Position += length;
+			return window;
+		}
+
+		// Otherwise, refill the direct buffer from the channel.
+		m_Buffer.clear();
+		if (m_End - m_Position < m_Buffer.capacity())
+		{
+			m_Buffer.limit((int)(m_End - m_Position));
+		}
+		while (m_Buffer.hasRemaining())
+		{
+			int iRead = m_Channel.read(m_Buffer, m_Position);
+			if (iRead < 0)
+			{
+				// The file shrank underneath us; stop at what we have.
+				m_End = m_Position;
+				break;
+			}
+			m_Position += iRead;
+		}
+		m_Buffer.flip();
+		return m_Buffer.hasRemaining() ? m_Buffer : null;
+	}
+
+	//-----------------------------------------------------------------------
+	// WordBoundary: Finds a position at which the file can be split without
+	// cutting a word in half.
+	//
+	// Input: A position in the file.
+	// Output: The first position p, at or after the given one, that is the
+	// start or end of the file or follows a space or end-of-line marker.
+	// Properties: Tokenizing [0, p) and [p, size()) separately gives the same
+	// words as tokenizing the whole file, since only those bytes end words.
+	// Does not move the range being read.
+	//-----------------------------------------------------------------------
+	public long WordBoundary(long position) throws IOException
+	{
+		if ((position <= 0) || (position >= m_Size))
+		{
+			return Math.max(0, Math.min(position, m_Size));
+		}
+
+		// Scan forward from the byte before the position for a separator.
+		ByteBuffer scan = ByteBuffer.allocate(4096);
+		long scanned = position - 1;
+		while (scanned < m_Size)
+		{
+			scan.clear();
+			int iRead = m_Channel.read(scan, scanned);
+			if (iRead <= 0)
+			{
+				break;
+			}
+			for (int i=0; i<iRead; i++)
+			{
+				if (Normalize(scan.get(i)) == ' ')
+				{
+					return scanned + i + 1;
+				}
+			}
+			scanned += iRead;
+		}
+		return m_Size;
+	}
+
+	//-----------------------------------------------------------------------
+	// close: Closes the file.
+	//-----------------------------------------------------------------------
+	public void close() throws IOException
+	{
+		m_Stream.close();
+	}
+
+	/*****************************
+	 * Static Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Normalize: Returns the normalized form of a byte.
+	//
+	// Input: A raw byte from the file.
+	// Output: The lower-case letter for a letter, ' ' for a space or an
+	// end-of-line marker, and 0 for any other character (to be removed).
+	//-----------------------------------------------------------------------
+	public static char Normalize(byte b)
+	{
+		return NormalTable[b & 0xFF];
+	}
+}
@@ -0,0 +1,469 @@
+/****************************************************************************
+ Class: InvertedIndex
+ Purpose: Indexes a collection of term vectors by term, so that the
+ documents most similar to a query can be found by looking only at the
+ documents that share a term with it.
+
+ Constructor: InvertedIndex(TermDictionary dictionary)
+ Behavior: Creates an empty index for vectors built against the dictionary.
+
+ Public Class Methods:
+ 	int Add(TermVector vector) : Adds a document, returning its id.
+ 	int Add(VectorTextFile3 vector) : Adds a document, returning its id.
+ 	int size() : Returns the number of documents.
+ 	DocumentScore[] TopK(TermVector query, int k) : Returns the k documents
+ 		with the smallest angle to the query, most similar first.
+ 	DocumentScore[] TopK(VectorTextFile3 query, int k) : As above.
+
+ A document is indexed as it was when added: a changed text, e.g., from
+ VectorTextFile3.Update, is a new vector and must be added to be found.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+// Class declaration:
+public class InvertedIndex
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Dictionary that the term ids refer to
+	TermDictionary m_Dictionary;
+
+	// Postings of each term: the ids of the documents containing it, and
+	// its count in each.  Only the first m_PostingLengths[t] are in use.
+	int[][] m_PostingDocs;
+	int[][] m_PostingCounts;
+	int[] m_PostingLengths;
+
+	// Largest value of count/norm over the postings of each term, which
+	// bounds how much the term can add to any document's cosine.
+	double[] m_MaxWeights;
+
+	// Norm of each document, and the number of documents
+	double[] m_Norms;
+	int m_DocCount;
+
+	// Per-thread score accumulators, reused between queries
+	ThreadLocal<Accumulator> m_Scratch;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates an empty index.
+	//
+	// Input: The dictionary that indexed vectors are built against.
+	//-----------------------------------------------------------------------
+	public InvertedIndex(TermDictionary dictionary)
+	{
+		m_Dictionary = dictionary;
+		m_PostingDocs = new int[0][];
+		m_PostingCounts = new int[0][];
+		m_PostingLengths = new int[0];
+		m_MaxWeights = new double[0];
+		m_Norms = new double[16];
+		m_DocCount = 0;
+		m_Scratch = new ThreadLocal<Accumulator>() {
+			protected Accumulator initialValue()
+			{
+				return new Accumulator();
+			}
+		};
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Add: Adds a document to the index.
+	//
+	// Input: The document's vector, built against the index's dictionary.
+	// Output: The id of the document, which is the number of documents
+	// added before it.
+	// Properties: Adds are serialized with each other, but must not run
+	// concurrently with TopK.
+	//-----------------------------------------------------------------------
+	public synchronized int Add(TermVector vector)
+	{
+		if (vector.getDictionary() != m_Dictionary)
+		{
+			throw new IllegalArgumentException("Vector was built against a different dictionary.");
+		}
+
+		int docId = m_DocCount;
+		if (docId == m_Norms.length)
+		{
+			m_Norms = Arrays.copyOf(m_Norms, docId * 2);
+		}
+		double norm = vector.Norm();
+		m_Norms[docId] = norm;
+		m_DocCount++;
+
+		for (int i=0; i<vector.length(); i++)
+		{
+			int term = vector.getTermId(i);
+			int count = vector.getCount(i);
+			EnsureTerm(term);
+
+			int length = m_PostingLengths[term];
+			if (length == m_PostingDocs[term].length)
+			{
+				int capacity = Math.max(4, length * 2);
+				m_PostingDocs[term] = Arrays.copyOf(m_PostingDocs[term], capacity);
+				m_PostingCounts[term] = Arrays.copyOf(m_PostingCounts[term], capacity);
+			}
+			m_PostingDocs[term][length] = docId;
+			m_PostingCounts[term][length] = count;
+			m_PostingLengths[term] = length + 1;
+
+			m_MaxWeights[term] = Math.max(m_MaxWeights[term], count / norm);
+		}
+		return docId;
+	}
+
+	//-----------------------------------------------------------------------
+	// Add: Adds a VectorTextFile3 to the index, returning its id.  A vector
+	// whose file failed to load is added as a document with no words, so it
+	// keeps its id but is never returned by TopK.
+	//-----------------------------------------------------------------------
+	public int Add(VectorTextFile3 vector)
+	{
+		return Add(Counted(vector));
+	}
+
+	//-----------------------------------------------------------------------
+	// size: Returns the number of documents in the index.
+	//-----------------------------------------------------------------------
+	public int size()
+	{
+		return m_DocCount;
+	}
+
+	//-----------------------------------------------------------------------
+	// TopK: Finds the documents most similar to a query.
+	//
+	// Input: The query vector, and the number of documents to return.
+	// Output: Up to k documents that share a term with the query, ordered
+	// from the smallest angle to the query to the largest.
+	// Methodology: A document's cosine is the sum, over shared terms t, of
+	// q(t)*d(t) / (|q|*|d|).  Term t therefore adds at most
+	// q(t)*m_MaxWeights[t]/|q| to any document.  Query terms are visited in
+	// decreasing order of that bound, adding to one accumulator per document
+	// met.  Once the bounds of the terms still to visit add up to less than
+	// the k-th best score so far, no unseen document can reach the top k,
+	// and the remaining terms only update documents already seen.  The
+	// k-th best score is kept in a min-heap of the k best partial scores,
+	// built from the documents met once the bounds left drop below 1, and
+	// then updated as each document's score grows, in O(log k) per
+	// posting, rather than by rescanning every document met after each
+	// term.
+	//-----------------------------------------------------------------------
+	public DocumentScore[] TopK(TermVector query, int k)
+	{
+		if (query.getDictionary() != m_Dictionary)
+		{
+			throw new IllegalArgumentException("Query was built against a different dictionary.");
+		}
+		double queryNorm = query.Norm();
+		if ((k < 1) || (queryNorm == 0))
+		{
+			return new DocumentScore[0];
+		}
+
+		// Collect the query terms that occur in the index, with their bounds.
+		int iNumTerms = 0;
+		Integer[] order = new Integer[query.length()];
+		final double[] bounds = new double[query.length()];
+		double remaining = 0;
+		for (int i=0; i<query.length(); i++)
+		{
+			int term = query.getTermId(i);
+			if ((term < m_PostingLengths.length) && (m_PostingLengths[term] > 0))
+			{
+				bounds[i] = query.getCount(i) * m_MaxWeights[term] / queryNorm;
+				remaining += bounds[i];
+				order[iNumTerms] = i;
+				iNumTerms++;
+			}
+		}
+		Arrays.sort(order, 0, iNumTerms, new Comparator<Integer>() {
+			public int compare(Integer A, Integer B)
+			{
+				return Double.compare(bounds[B], bounds[A]);
+			}
+		});
+
+		Accumulator acc = m_Scratch.get();
+		acc.Reserve(m_DocCount, k);
+		boolean admitting = true;
+		boolean ranking = false;
+
+		for (int t=0; t<iNumTerms; t++)
+		{
+			int i = order[t];
+			int term = query.getTermId(i);
+			long queryCount = query.getCount(i);
+			int[] docs = m_PostingDocs[term];
+			int[] counts = m_PostingCounts[term];
+			int length = m_PostingLengths[term];
+
+			for (int p=0; p<length; p++)
+			{
+				int doc = docs[p];
+				if (!acc.m_Seen[doc])
+				{
+					if (!admitting)
+					{
+						continue;
+					}
+					acc.m_Seen[doc] = true;
+					acc.m_Touched[acc.m_TouchedCount] = doc;
+					acc.m_TouchedCount++;
+				}
+				acc.m_Sums[doc] += queryCount * counts[p];
+				if (ranking)
+				{
+					acc.Offer(doc, acc.m_Sums[doc] / (queryNorm * m_Norms[doc]));
+				}
+			}
+
+			// Stop admitting new documents once they cannot make the top k.
+			// No cosine exceeds 1, so there is no need to rank the documents
+			// before the remaining bound drops below 1.
+			remaining -= bounds[i];
+			if (admitting && (remaining < 1.0) && (acc.m_TouchedCount >= k))
+			{
+				if (!ranking)
+				{
+					for (int j=0; j<acc.m_TouchedCount; j++)
+					{
+						int doc = acc.m_Touched[j];
+						acc.Offer(doc, acc.m_Sums[doc] / (queryNorm * m_Norms[doc]));
+					}
+					ranking = true;
+				}
+				// Partial cosines only grow, so the smallest in the heap is a
+				// lower bound on the k-th best final score.
+				if (remaining < acc.m_HeapScores[0])
+				{
+					admitting = false;
+					ranking = false;
+				}
+			}
+		}
+
+		// Select the k best documents, then clear the accumulators.
+		PriorityQueue<DocumentScore> best = new PriorityQueue<DocumentScore>(k, ByCosine);
+		for (int j=0; j<acc.m_TouchedCount; j++)
+		{
+			int doc = acc.m_Touched[j];
+			double cosine = acc.m_Sums[doc] / (queryNorm * m_Norms[doc]);
+			acc.m_Sums[doc] = 0;
+			acc.m_Seen[doc] = false;
+			if (best.size() < k)
+			{
+				best.add(new DocumentScore(doc, cosine));
+			}
+			else if (cosine > best.peek().getCosine())
+			{
+				best.poll();
+				best.add(new DocumentScore(doc, cosine));
+			}
+		}
+		acc.m_TouchedCount = 0;
+		acc.ClearHeap();
+
+		DocumentScore[] result = new DocumentScore[best.size()];
+		for (int j=result.length-1; j>=0; j--)
+		{
+			result[j] = best.poll();
+		}
+		return result;
+	}
+
+	//-----------------------------------------------------------------------
+	// TopK: Finds the k documents most similar to a VectorTextFile3.  A
+	// query whose file failed to load has no words, and so no matches.
+	//-----------------------------------------------------------------------
+	public DocumentScore[] TopK(VectorTextFile3 query, int k)
+	{
+		return TopK(Counted(query), k);
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	// Orders scores from the least similar to the most similar
+	private static final Comparator<DocumentScore> ByCosine = new Comparator<DocumentScore>() {
+		public int compare(DocumentScore A, DocumentScore B)
+		{
+			return Double.compare(A.getCosine(), B.getCosine());
+		}
+	};
+
+	//-----------------------------------------------------------------------
+	// Counted: Returns the TermVector of a file's vector, or an empty one
+	// if its file failed to load.
+	//-----------------------------------------------------------------------
+	private static TermVector Counted(VectorTextFile3 vector)
+	{
+		if (vector.m_CountedWords == null)
+		{
+			return new TermVector(TermDictionary.Global, new int[0], new int[0], 0);
+		}
+		return vector.m_CountedWords;
+	}
+
+	//-----------------------------------------------------------------------
+	// EnsureTerm: Grows the per-term arrays to hold the given term id.
+	//-----------------------------------------------------------------------
+	private void EnsureTerm(int term)
+	{
+		if (term < m_PostingLengths.length)
+		{
+			return;
+		}
+		int capacity = Math.max(term + 1, Math.max(m_Dictionary.size(), m_PostingLengths.length * 2));
+		int oldCapacity = m_PostingLengths.length;
+		m_PostingDocs = Arrays.copyOf(m_PostingDocs, capacity);
+		m_PostingCounts = Arrays.copyOf(m_PostingCounts, capacity);
+		m_PostingLengths = Arrays.copyOf(m_PostingLengths, capacity);
+		m_MaxWeights = Arrays.copyOf(m_MaxWeights, capacity);
+		for (int t=oldCapacity; t<capacity; t++)
+		{
+			m_PostingDocs[t] = new int[0];
+			m_PostingCounts[t] = new int[0];
+		}
+	}
+
+	/****************************************************************************
+	 Class: Accumulator
+	 Purpose: Holds one thread's partial dot products during a query, with
+	 the list of documents touched so that only those need clearing, and a
+	 min-heap of the k documents with the best partial cosines.
+	 ***************************************************************************/
+	private static class Accumulator
+	{
+		// Partial dot product of each document, whether the document has
+		// been touched by the query, and the documents touched
+		long[] m_Sums = new long[0];
+		boolean[] m_Seen = new boolean[0];
+		int[] m_Touched = new int[0];
+		int m_TouchedCount = 0;
+
+		// Min-heap of up to m_HeapLimit documents by partial cosine, and the
+		// position + 1 of each document in it, or 0 if it is not there
+		int[] m_HeapDocs = new int[0];
+		double[] m_HeapScores = new double[0];
+		int[] m_HeapPositions = new int[0];
+		int m_HeapSize = 0;
+		int m_HeapLimit = 0;
+
+		// Reserve: Makes room for the given number of documents, and a heap
+		// of the k best.
+		void Reserve(int docCount, int k)
+		{
+			if (m_Sums.length < docCount)
+			{
+				m_Sums = Arrays.copyOf(m_Sums, docCount);
+				m_Seen = Arrays.copyOf(m_Seen, docCount);
+				m_Touched = new int[docCount];
+				m_HeapPositions = Arrays.copyOf(m_HeapPositions, docCount);
+			}
+			m_HeapLimit = Math.min(k, docCount);
+			if (m_HeapDocs.length < m_HeapLimit)
+			{
+				m_HeapDocs = new int[m_HeapLimit];
+				m_HeapScores = new double[m_HeapLimit];
+			}
+		}
+
+		// Offer: Records a document's partial cosine, which is never less
+		// than its last one, keeping the heap holding the best m_HeapLimit.
+		void Offer(int doc, double score)
+		{
+			int position = m_HeapPositions[doc] - 1;
+			if (position >= 0)
+			{
+				m_HeapScores[position] = score;
+				SiftDown(position);
+			}
+			else if (m_HeapSize < m_HeapLimit)
+			{
+				Place(m_HeapSize, doc, score);
+				m_HeapSize++;
+				SiftUp(m_HeapSize - 1);
+			}
+			else if (score > m_HeapScores[0])
+			{
+				m_HeapPositions[m_HeapDocs[0]] = 0;
+				Place(0, doc, score);
+				SiftDown(0);
+			}
+		}
+
+		// ClearHeap: Empties the heap.
+		void ClearHeap()
+		{
+			for (int j=0; j<m_HeapSize; j++)
+			{
+				m_HeapPositions[m_HeapDocs[j]] = 0;
+			}
+			m_HeapSize = 0;
+		}
+
+		// SiftUp: Moves the entry at a position up while it is smaller than
+		// its parent.
+		private void SiftUp(int c)
+		{
+			int doc = m_HeapDocs[c];
+			double score = m_HeapScores[c];
+			while ((c > 0) && (m_HeapScores[(c-1)/2] > score))
+			{
+				Place(c, m_HeapDocs[(c-1)/2], m_HeapScores[(c-1)/2]);
+				c = (c-1)/2;
+			}
+			Place(c, doc, score);
+		}
+
+		// SiftDown: Moves the entry at a position down while it is larger
+		// than its smaller child.
+		private void SiftDown(int c)
+		{
+			int doc = m_HeapDocs[c];
+			double score = m_HeapScores[c];
+			while (true)
+			{
+				int child = 2*c + 1;
+				if (child >= m_HeapSize)
+				{
+					break;
+				}
+				if ((child + 1 < m_HeapSize) && (m_HeapScores[child + 1] < m_HeapScores[child]))
+				{
+					child++;
+				}
+				if (m_HeapScores[child] >= score)
+				{
+					break;
+				}
+				Place(c, m_HeapDocs[child], m_HeapScores[child]);
+				c = child;
+			}
+			Place(c, doc, score);
+		}
+
+		// Place: Puts a document at a position of the heap.
+		private void Place(int position, int doc, double score)
+		{
+			m_HeapDocs[position] = doc;
+			m_HeapScores[position] = score;
+			m_HeapPositions[doc] = position + 1;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/****************************************************************************
+ Class: LatencyHistogram
+ Purpose: Records a distribution of latencies, in nanoseconds, in buckets
+ whose bounds are powers of two.  Safe to update from many threads: the
+ counters are striped (LongAdder, LongAccumulator), so threads recording
+ at once update separate cells instead of contending on one cache line.
+ Reads sum the cells, so they are slower, and a read racing with updates
+ may see some of them and not others.
+ 
+ Constructor: LatencyHistogram()
+ Behavior: Creates an empty histogram.
+ 
+ Public Class Methods:
+ 	void Record(long nanos) : Records one latency.
+ 	long getCount() : Returns the number of latencies recorded.
+ 	long getTotalNanos() : Returns the sum of the latencies.
+ 	long getMaxNanos() : Returns the largest latency.
+ 	long Percentile(double p) : Returns an upper bound on the p-th 
+ 		percentile latency.
+ 	void reset() : Clears the histogram.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Class declaration:
+public class LatencyHistogram
+{
+	/*****************************
+	 * Class member variables 
+	 *****************************/
+	// Bucket i counts latencies in [2^(i-1), 2^i) nanoseconds (bucket 0
+	// counts latencies of 0).
+	LongAdder[] m_Buckets;
+	
+	LongAdder m_Count;
+	LongAdder m_TotalNanos;
+	LongAccumulator m_MaxNanos;
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Creates an empty histogram.
+	//-----------------------------------------------------------------------
+	public LatencyHistogram()
+	{
+		m_Buckets = new LongAdder[64];
+		for (int i=0; i<64; i++)
+		{
+			m_Buckets[i] = new LongAdder();
+		}
+		m_Count = new LongAdder();
+		m_TotalNanos = new LongAdder();
+		m_MaxNanos = new LongAccumulator(Math::max, 0);
+	}
+	
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// Record: Records one latency.
+	//-----------------------------------------------------------------------
+	public void Record(long nanos)
+	{
+		if (nanos < 0)
+		{
+			nanos = 0;
+		}
+		m_Buckets[64 - Long.numberOfLeadingZeros(nanos)].increment();
+		m_Count.increment();
+		m_TotalNanos.add(nanos);
+		m_MaxNanos.accumulate(nanos);
+	}
+	
+	//-----------------------------------------------------------------------
+	// getCount: Returns the number of latencies recorded.
+	//-----------------------------------------------------------------------
+	public long getCount()
+	{
+		return m_Count.sum();
+	}
+	
+	//-----------------------------------------------------------------------
+	// getTotalNanos: Returns the sum of the latencies recorded.
+	//-----------------------------------------------------------------------
+	public long getTotalNanos()
+	{
+		return m_TotalNanos.sum();
+	}
+	
+	//-----------------------------------------------------------------------
+	// getMaxNanos: Returns the largest latency recorded.
+	//-----------------------------------------------------------------------
+	public long getMaxNanos()
+	{
+		return m_MaxNanos.get();
+	}
+	
+	//-----------------------------------------------------------------------
+	// Percentile: Returns an upper bound on the p-th percentile latency.
+	//
+	// Input: A percentile between 0 and 100.
+	// Output: The upper bound of the bucket holding that percentile, which
+	// is within a factor of two of the true value, or 0 if the histogram
+	// is empty.
+	//-----------------------------------------------------------------------
+	public long Percentile(double p)
+	{
+		long count = m_Count.sum();
+		if (count == 0)
+		{
+			return 0;
+		}
+		long rank = (long)Math.ceil(count * p / 100.0);
+		long seen = 0;
+		for (int i=0; i<64; i++)
+		{
+			seen += m_Buckets[i].sum();
+			if (seen >= rank)
+			{
+				return Math.min((i == 0) ? 0 : (1L << i) - 1, m_MaxNanos.get());
+			}
+		}
+		return m_MaxNanos.get();
+	}
+	
+	//-----------------------------------------------------------------------
+	// reset: Clears the histogram.
+	//-----------------------------------------------------------------------
+	public void reset()
+	{
+		for (int i=0; i<64; i++)
+		{
+			m_Buckets[i].reset();
+		}
+		m_Count.reset();
+		m_TotalNanos.reset();
+		m_MaxNanos.reset();
+	}
+}
@@ -0,0 +1,335 @@
+/****************************************************************************
+ Class: LshIndex
+ Purpose: Finds near-duplicate documents without comparing every pair.
+ Each document's MinHash signature is cut into bands of rows, and the
+ document is put in one bucket per band, keyed by that band's values.
+ Documents sharing a bucket become candidates, and only candidates are
+ compared exactly, with TermVector.Angle.
+
+ Constructor: LshIndex(int bands, int rows, long seed)
+ Behavior: Creates an empty index using signatures of bands*rows values.
+
+ Public Class Methods:
+ 	int Add(TermVector vector) : Adds a document, returning its id.
+ 	int Add(VectorTextFile3 vector) : Adds a document, returning its id.
+ 	int size() : Returns the number of documents.
+ 	int[] Candidates(TermVector query) : Returns the documents that share a
+ 		bucket with the query.
+ 	int[] Candidates(VectorTextFile3 query) : As above.
+ 	DocumentScore[] Query(TermVector query, double maxAngle) : Returns the
+ 		documents within maxAngle of the query, most similar first.
+ 	DocumentScore[] Query(VectorTextFile3 query, double maxAngle) : As above.
+ 	List<DocumentPair> FindPairs(double maxAngle) : Returns every pair of
+ 		documents within maxAngle of each other, among the candidates.
+
+ Two documents whose word sets have Jaccard similarity s share at least
+ one bucket with probability 1 - (1 - s^rows)^bands, an S-shaped curve
+ that is steepest near s = (1/bands)^(1/rows).  More bands catch more
+ true pairs; more rows propose fewer false ones.  Pairs are only proposed
+ by word-set similarity, so a pair within maxAngle can be missed, but
+ every pair returned has been checked exactly.  Not thread-safe.  A
+ document is indexed as it was when added: a changed text, e.g., from
+ VectorTextFile3.Update, is a new vector and must be added to be found.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+// Class declaration:
+public class LshIndex
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Signature generator, and how the signature is cut into bands
+	MinHasher m_Hasher;
+	int m_Bands;
+	int m_Rows;
+
+	// Buckets of each band: document ids keyed by the hash of the band's
+	// values.  Element 0 of each array holds the number of ids after it.
+	ArrayList<HashMap<Long, int[]>> m_Buckets;
+
+	// Vectors of the documents added, by id, and the band keys of each, or
+	// null for a document in no bucket
+	ArrayList<TermVector> m_Vectors;
+	ArrayList<long[]> m_Keys;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates an empty index.
+	//
+	// Input: The number of bands, the number of signature values in each,
+	// and the seed of the MinHash functions.
+	//-----------------------------------------------------------------------
+	public LshIndex(int bands, int rows, long seed)
+	{
+		m_Hasher = new MinHasher(bands * rows, seed);
+		m_Bands = bands;
+		m_Rows = rows;
+		m_Buckets = new ArrayList<HashMap<Long, int[]>>();
+		for (int b=0; b<bands; b++)
+		{
+			m_Buckets.add(new HashMap<Long, int[]>());
+		}
+		m_Vectors = new ArrayList<TermVector>();
+		m_Keys = new ArrayList<long[]>();
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Add: Adds a document to the index.
+	//
+	// Input: The document's vector.
+	// Output: The id of the document, which is the number added before it.
+	// Properties: A vector with no words is given an id, but is put in no
+	// bucket, so it is never a candidate.  Otherwise all such vectors would
+	// share the same signature, and so one bucket in every band, and every
+	// pair of them would be compared.
+	//-----------------------------------------------------------------------
+	public int Add(TermVector vector)
+	{
+		int docId = m_Vectors.size();
+		m_Vectors.add(vector);
+		if (vector.length() == 0)
+		{
+			m_Keys.add(null);
+			return docId;
+		}
+
+		long[] keys = BandKeys(vector);
+		m_Keys.add(keys);
+		for (int b=0; b<m_Bands; b++)
+		{
+			HashMap<Long, int[]> buckets = m_Buckets.get(b);
+			int[] bucket = buckets.get(keys[b]);
+			if (bucket == null)
+			{
+				bucket = new int[3];
+			}
+			else if (bucket[0] + 1 == bucket.length)
+			{
+				bucket = Arrays.copyOf(bucket, bucket.length * 2);
+			}
+			bucket[0]++;
+			bucket[bucket[0]] = docId;
+			buckets.put(keys[b], bucket);
+		}
+		return docId;
+	}
+
+	//-----------------------------------------------------------------------
+	// Add: Adds the vector of a file.  A vector whose file failed to load is
+	// added as a document with no words.
+	//-----------------------------------------------------------------------
+	public int Add(VectorTextFile3 vector)
+	{
+		return Add(Counted(vector));
+	}
+
+	//-----------------------------------------------------------------------
+	// size: Returns the number of documents in the index.
+	//-----------------------------------------------------------------------
+	public int size()
+	{
+		return m_Vectors.size();
+	}
+
+	//-----------------------------------------------------------------------
+	// Candidates: Returns the ids of the documents that share at least one
+	// bucket with the query, in increasing order.  A query with no words
+	// has none.
+	//-----------------------------------------------------------------------
+	public int[] Candidates(TermVector query)
+	{
+		if (query.length() == 0)
+		{
+			return new int[0];
+		}
+		long[] keys = BandKeys(query);
+		HashSet<Integer> found = new HashSet<Integer>();
+		for (int b=0; b<m_Bands; b++)
+		{
+			int[] bucket = m_Buckets.get(b).get(keys[b]);
+			if (bucket != null)
+			{
+				for (int i=1; i<=bucket[0]; i++)
+				{
+					found.add(bucket[i]);
+				}
+			}
+		}
+		int[] result = new int[found.size()];
+		int i = 0;
+		for (int docId : found)
+		{
+			result[i] = docId;
+			i++;
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	//-----------------------------------------------------------------------
+	// Candidates: As above, for the vector of a file.
+	//-----------------------------------------------------------------------
+	public int[] Candidates(VectorTextFile3 query)
+	{
+		return Candidates(Counted(query));
+	}
+
+	//-----------------------------------------------------------------------
+	// Query: Finds the indexed documents near a query.
+	//
+	// Input: The query's vector, and the largest angle to accept.
+	// Output: The candidates whose angle to the query, computed exactly,
+	// is at most maxAngle, ordered from the smallest angle to the largest.
+	//-----------------------------------------------------------------------
+	public DocumentScore[] Query(TermVector query, double maxAngle)
+	{
+		List<DocumentScore> scores = new ArrayList<DocumentScore>();
+		for (int docId : Candidates(query))
+		{
+			double angle = TermVector.Angle(query, m_Vectors.get(docId));
+			if (angle <= maxAngle)
+			{
+				scores.add(new DocumentScore(docId, Math.cos(angle)));
+			}
+		}
+		DocumentScore[] result = scores.toArray(new DocumentScore[scores.size()]);
+		Arrays.sort(result, new Comparator<DocumentScore>() {
+			public int compare(DocumentScore A, DocumentScore B)
+			{
+				return Double.compare(B.getCosine(), A.getCosine());
+			}
+		});
+		return result;
+	}
+
+	//-----------------------------------------------------------------------
+	// Query: As above, for the vector of a file.
+	//-----------------------------------------------------------------------
+	public DocumentScore[] Query(VectorTextFile3 query, double maxAngle)
+	{
+		return Query(Counted(query), maxAngle);
+	}
+
+	//-----------------------------------------------------------------------
+	// FindPairs: Finds the pairs of near-duplicate documents.
+	//
+	// Input: The largest angle to accept.
+	// Output: Every candidate pair, i.e., pair sharing a bucket, whose angle
+	// computed with TermVector.Angle is at most maxAngle.  Each pair is
+	// listed once, with the smaller id first, ordered by ids.
+	// Methodology: A pair sharing several buckets is only compared in the
+	// first band where their keys match, which is found from the keys kept
+	// for each document, so no set of the pairs compared is needed.
+	// The work is the number of candidate pairs, which for a well-chosen
+	// number of bands and rows grows roughly linearly with the corpus,
+	// rather than the N(N-1)/2 pairs of an exhaustive comparison.
+	//-----------------------------------------------------------------------
+	public List<DocumentPair> FindPairs(double maxAngle)
+	{
+		List<DocumentPair> pairs = new ArrayList<DocumentPair>();
+		for (int b=0; b<m_Bands; b++)
+		{
+			for (int[] bucket : m_Buckets.get(b).values())
+			{
+				for (int i=1; i<=bucket[0]; i++)
+				{
+					for (int j=i+1; j<=bucket[0]; j++)
+					{
+						// Ids are added in increasing order, so bucket[i] < bucket[j].
+						int first = bucket[i];
+						int second = bucket[j];
+						if (FirstSharedBand(first, second) < b)
+						{
+							continue;
+						}
+						double angle = TermVector.Angle(m_Vectors.get(first), m_Vectors.get(second));
+						if (angle <= maxAngle)
+						{
+							pairs.add(new DocumentPair(first, second, angle));
+						}
+					}
+				}
+			}
+		}
+		pairs.sort(new Comparator<DocumentPair>() {
+			public int compare(DocumentPair A, DocumentPair B)
+			{
+				if (A.getFirst() != B.getFirst())
+				{
+					return Integer.compare(A.getFirst(), B.getFirst());
+				}
+				return Integer.compare(A.getSecond(), B.getSecond());
+			}
+		});
+		return pairs;
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// BandKeys: Returns the key of each band of a vector's signature, the
+	// hash of the band's values.  Different bands never share buckets,
+	// since each has its own map, and keys that collide only add
+	// candidates, which are checked exactly.
+	//-----------------------------------------------------------------------
+	private long[] BandKeys(TermVector vector)
+	{
+		int[] signature = m_Hasher.Signature(vector);
+		long[] keys = new long[m_Bands];
+		for (int b=0; b<m_Bands; b++)
+		{
+			long key = 0;
+			for (int r=b*m_Rows; r<(b+1)*m_Rows; r++)
+			{
+				key = (key + signature[r]) * 0x9E3779B97F4A7C15L;
+			}
+			keys[b] = key ^ (key >>> 29);
+		}
+		return keys;
+	}
+
+	//-----------------------------------------------------------------------
+	// FirstSharedBand: Returns the first band in which two indexed
+	// documents have the same key, i.e., share a bucket, or m_Bands if
+	// there is none.
+	//-----------------------------------------------------------------------
+	private int FirstSharedBand(int first, int second)
+	{
+		long[] Akeys = m_Keys.get(first);
+		long[] Bkeys = m_Keys.get(second);
+		int b = 0;
+		while ((b < m_Bands) && (Akeys[b] != Bkeys[b]))
+		{
+			b++;
+		}
+		return b;
+	}
+
+	//-----------------------------------------------------------------------
+	// Counted: Returns the TermVector of a file's vector, or an empty one
+	// if its file failed to load.
+	//-----------------------------------------------------------------------
+	private static TermVector Counted(VectorTextFile3 vector)
+	{
+		if (vector.m_CountedWords == null)
+		{
+			return new TermVector(TermDictionary.Global, new int[0], new int[0], 0);
+		}
+		return vector.m_CountedWords;
+	}
+}
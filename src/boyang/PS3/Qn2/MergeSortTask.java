@@ -0,0 +1,71 @@
+/****************************************************************************
+ Class: MergeSortTask
+ Purpose: Sorts a range of words as a fork/join task, for 
+ VectorTextFile3.ParallelMergeSortWords.
+ 
+ Constructor: MergeSortTask(String[] source, String[] target, 
+ 	int begin, int end, int threshold)
+ Behavior: Creates a task that sorts target[begin..end], using 
+ source[begin..end] as scratch space (see VectorTextFile3.SortInto).
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.util.concurrent.RecursiveAction;
+
+// Class declaration:
+class MergeSortTask extends RecursiveAction
+{
+	/*****************************
+	 * Class member variables 
+	 *****************************/
+	// Version of the serialized form inherited from ForkJoinTask
+	private static final long serialVersionUID = 1L;
+	
+	// Scratch array, holding the same words as the target range
+	String[] m_Source;
+	
+	// Array whose range is sorted by this task
+	String[] m_Target;
+	
+	// Inclusive range sorted by this task
+	int m_Begin;
+	int m_End;
+	
+	// Number of words below which the range is sorted without forking
+	int m_Threshold;
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Creates a task that sorts target[begin..end].
+	//-----------------------------------------------------------------------
+	MergeSortTask(String[] source, String[] target, int begin, int end, int threshold)
+	{
+		m_Source = source;
+		m_Target = target;
+		m_Begin = begin;
+		m_End = end;
+		m_Threshold = threshold;
+	}
+	
+	//-----------------------------------------------------------------------
+	// compute: Sorts the range, splitting it across two subtasks if it holds
+	// at least m_Threshold words.
+	//-----------------------------------------------------------------------
+	protected void compute()
+	{
+		int NumWords = m_End-m_Begin+1;
+		if (NumWords < Math.max(m_Threshold, VectorTextFile3.MinMergeSize))
+		{
+			VectorTextFile3.SortInto(m_Source, m_Target, m_Begin, m_End);
+			return;
+		}
+		
+		// Sort each half into the source array in parallel, then merge
+		// them back into the target.
+		int Middle = m_Begin + NumWords/2;
+		invokeAll(new MergeSortTask(m_Target, m_Source, m_Begin, Middle-1, m_Threshold),
+				  new MergeSortTask(m_Target, m_Source, Middle, m_End, m_Threshold));
+		VectorTextFile3.Merge(m_Source, m_Target, m_Begin, Middle, m_End);
+	}
+}
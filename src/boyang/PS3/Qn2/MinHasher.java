@@ -0,0 +1,134 @@
+/****************************************************************************
+ Class: MinHasher
+ Purpose: Computes MinHash signatures of term vectors.  The fraction of
+ positions at which two signatures agree estimates the Jaccard similarity
+ of the two vectors' sets of distinct words.
+ 
+ Constructor: MinHasher(int numHashes, long seed)
+ Behavior: Creates numHashes independent hash functions from the seed.
+ 
+ Public Class Methods:
+ 	int length() : Returns the number of values in a signature.
+ 	int[] Signature(TermVector vector) : Returns the signature of a vector.
+ 	
+ Static Methods:
+ 	double EstimateJaccard(int[] A, int[] B) : Estimates the Jaccard
+ 		similarity of the vectors with the given signatures.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Class declaration:
+public class MinHasher
+{
+	/*****************************
+	 * Class member variables 
+	 *****************************/
+	// Multiplier (always odd) and offset of each hash function
+	long[] m_Multipliers;
+	long[] m_Offsets;
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Creates the hash functions.
+	//
+	// Input: The number of hash functions, i.e., the signature length, and
+	// a seed.  Hashers built with the same arguments give the same 
+	// signatures, so signatures can be stored and compared later.
+	//-----------------------------------------------------------------------
+	public MinHasher(int numHashes, long seed)
+	{
+		Random random = new Random(seed);
+		m_Multipliers = new long[numHashes];
+		m_Offsets = new long[numHashes];
+		for (int i=0; i<numHashes; i++)
+		{
+			m_Multipliers[i] = random.nextLong() | 1;
+			m_Offsets[i] = random.nextLong();
+		}
+	}
+	
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// length: Returns the number of values in a signature.
+	//-----------------------------------------------------------------------
+	public int length()
+	{
+		return m_Multipliers.length;
+	}
+	
+	//-----------------------------------------------------------------------
+	// Signature: Computes the MinHash signature of a vector.
+	//
+	// Input: A term vector.
+	// Output: An array whose entry i is the smallest value of hash function
+	// i over the vector's term ids.  A vector with no words gives an array
+	// of Integer.MAX_VALUE.
+	// Methodology: Each term id is first scrambled once, then hash function
+	// i takes the high 32 bits of (multiplier_i * scrambled + offset_i), a
+	// multiply-shift hash, so each (term, function) pair costs one 
+	// multiplication.  Only the set of terms matters, not their counts.
+	//-----------------------------------------------------------------------
+	public int[] Signature(TermVector vector)
+	{
+		int numHashes = m_Multipliers.length;
+		int[] signature = new int[numHashes];
+		Arrays.fill(signature, Integer.MAX_VALUE);
+		for (int t=0; t<vector.length(); t++)
+		{
+			long scrambled = Scramble(vector.getTermId(t));
+			for (int i=0; i<numHashes; i++)
+			{
+				int hash = (int)((m_Multipliers[i] * scrambled + m_Offsets[i]) >>> 33);
+				if (hash < signature[i])
+				{
+					signature[i] = hash;
+				}
+			}
+		}
+		return signature;
+	}
+	
+	/*****************************
+	 * Static Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// EstimateJaccard: Returns the fraction of positions at which two 
+	// signatures, from the same MinHasher, agree.
+	//-----------------------------------------------------------------------
+	public static double EstimateJaccard(int[] A, int[] B)
+	{
+		int agree = 0;
+		for (int i=0; i<A.length; i++)
+		{
+			if (A[i] == B[i])
+			{
+				agree++;
+			}
+		}
+		return (double)agree / A.length;
+	}
+	
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// Scramble: Mixes a term id into 64 well-distributed bits (the 
+	// finalizer of SplitMix64), since ids are small consecutive integers.
+	//-----------------------------------------------------------------------
+	private static long Scramble(int id)
+	{
+		long z = id * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,83 @@
+/****************************************************************************
+ Class: ScalarDotKernel
+ Purpose: Implements DotKernel with plain loops, for JVMs without the
+ Vector API.
+ 
+ Constructor: ScalarDotKernel()
+ Behavior: Creates the kernel, which has no state.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+// Class declaration:
+public class ScalarDotKernel implements DotKernel
+{
+	public long Dot(int[] A, int[] B, int length)
+	{
+		long sum = 0;
+		for (int i=0; i<length; i++)
+		{
+			sum += (long)A[i] * B[i];
+		}
+		return sum;
+	}
+	
+	public long GatherDot(int[] dense, int[] ids, int[] counts, int length)
+	{
+		long sum = 0;
+		for (int i=0; i<length; i++)
+		{
+			sum += (long)counts[i] * dense[ids[i]];
+		}
+		return sum;
+	}
+	
+	public long SquaredNorm(int[] counts, int length)
+	{
+		return Dot(counts, counts, length);
+	}
+	
+	//-----------------------------------------------------------------------
+	// IntersectDot: Walks the two sorted id lists together.
+	//-----------------------------------------------------------------------
+	public long IntersectDot(int[] Aids, int[] Acounts, int m, int[] Bids, int[] Bcounts, int n)
+	{
+		return MergeDot(Aids, Acounts, 0, m, Bids, Bcounts, 0, n);
+	}
+	
+	public String toString()
+	{
+		return "scalar";
+	}
+	
+	//-----------------------------------------------------------------------
+	// MergeDot: Walks entries [Aindex, m) of A and [Bindex, n) of B together,
+	// adding the products of the counts of equal ids.  Also finishes the
+	// vector kernel's IntersectDot.
+	//-----------------------------------------------------------------------
+	static long MergeDot(int[] Aids, int[] Acounts, int Aindex, int m, int[] Bids, int[] Bcounts, int Bindex, int n)
+	{
+		long sum = 0;
+		while ((Aindex < m) && (Bindex < n))
+		{
+			int Aid = Aids[Aindex];
+			int Bid = Bids[Bindex];
+			if (Aid == Bid)
+			{
+				sum += (long)Acounts[Aindex] * Bcounts[Bindex];
+				Aindex++;
+				Bindex++;
+			}
+			else if (Aid > Bid)
+			{
+				Bindex++;
+			}
+			else
+			{
+				Aindex++;
+			}
+		}
+		return sum;
+	}
+}
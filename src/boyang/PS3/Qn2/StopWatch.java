@@ -69,4 +69,12 @@ public class StopWatch {
 		r /= 1000000000;
 		return r;
 	}
+	
+	/*
+	 * Method: getNanos()
+	 * Description: returns the cumulative time the stopwatch has been running since it was last reset, in nanoseconds.
+	 */
+	long getNanos(){
+		return total;
+	}
 }
@@ -0,0 +1,561 @@
+/****************************************************************************
+ Class: StreamingVector
+ Purpose: Represents text arriving as a stream, e.g., a live log, as a
+ vector that is kept up to date word by word, together with its angle to
+ a fixed reference vector.  The vector can cover the whole stream, or
+ only a window of its most recent words.
+
+ Constructor: StreamingVector(TermVector reference, int window, int size)
+ Behavior: Creates an empty vector compared against the reference, using
+ the given window (Unbounded, TumblingWindow or SlidingWindow) of size
+ words.
+
+ Constructor: StreamingVector(VectorTextFile3 reference, int window, int size)
+ Behavior: As above, with the vector of a file as the reference.
+
+ Public Class Methods:
+ 	void feed(ByteBuffer block) : Adds the words in a block of raw bytes.
+ 	void feed(char[] chars, int offset, int length) : Adds the words in a
+ 		block of characters.
+ 	void finish() : Adds the word left at the end of the stream.
+ 	long Read(InputStream in) : Adds every word up to the end of a stream.
+ 	long Read(Reader in) : Adds every word up to the end of a stream.
+ 	double getAngle() : Returns the angle of the current window to the
+ 		reference.
+ 	double getLastWindowAngle() : Returns the angle of the last completed
+ 		tumbling window to the reference.
+ 	long getWindowCount() : Returns the number of completed tumbling windows.
+ 	int getWindowLength() : Returns the number of words in the window.
+ 	long getTokenCount() : Returns the number of words seen in the stream.
+ 	long getDotProduct() : Returns the dot product with the reference.
+ 	long getSquaredNorm() : Returns the squared norm of the window.
+ 	TermVector toTermVector() : Returns a copy of the window as a vector.
+
+ Words are counted under ids local to the stream, and the dictionary is
+ only read, so a stream of new words, e.g., random identifiers in a log,
+ never grows the shared dictionary.  Not thread-safe: a monitor reading
+ the stream on one thread should pass the angles it wants to other
+ threads itself.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Class declaration:
+public class StreamingVector implements TokenSink
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Windows: every word of the stream; consecutive, non-overlapping
+	// blocks of size words, each starting empty; or the last size words.
+	public static final int Unbounded = 0;
+	public static final int TumblingWindow = 1;
+	public static final int SlidingWindow = 2;
+
+	// Size of the blocks read by Read
+	static final int ReadSize = 1 << 16;
+
+	// Dictionary of the term ids, that of the reference
+	TermDictionary m_Dictionary;
+
+	// Words are counted under local ids.  Local id i < m_Reference.length
+	// is entry i of the reference, whose count is m_Reference[i] and whose
+	// dictionary id is m_TermIds[i]; larger ids are words of the stream
+	// not in the reference.  Also the reference's norm.
+	int[] m_Reference;
+	int[] m_TermIds;
+	double m_ReferenceNorm;
+
+	// Word of each local id (null for an id not in use), and its hash code
+	String[] m_Words;
+	int[] m_Hashes;
+
+	// Hash table from words to local ids: each slot holds an id plus 1, or
+	// 0 if empty, probed as in WordCounter
+	int[] m_Slots;
+	int m_SlotsUsed;
+
+	// Stream-local ids freed when their count fell to 0, to be used again,
+	// and the next id never used
+	int[] m_FreeIds;
+	int m_FreeCount;
+	int m_NextId;
+
+	// Window kind, and its size in words
+	int m_Window;
+	int m_WindowSize;
+
+	// Turns bytes into words
+	WordTokenizer m_Tokenizer;
+
+	// Count of each local id in the window, grown as new ids appear
+	int[] m_Counts;
+
+	// Term ids of the words in the window, in order of arrival, as a ring
+	// buffer whose oldest word is at m_Next once it is full; and the number
+	// of words it holds
+	int[] m_Ring;
+	int m_Next;
+	int m_Filled;
+
+	// Sum of the squared counts in the window, and dot product of the
+	// window with the reference, kept up to date as words enter and leave
+	long m_SquaredNorm;
+	long m_DotProduct;
+
+	// Number of words seen, number of tumbling windows completed, and the
+	// angle of the last of them
+	long m_TokenCount;
+	long m_WindowCount;
+	double m_LastWindowAngle;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates an empty streaming vector.
+	//
+	// Input: The reference vector; the kind of window; and its size in
+	// words, ignored for Unbounded.
+	// Assumptions: The size is positive for the two kinds of window.
+	// Properties: The reference's words are put in the hash table once,
+	// and keep their local ids for the life of the stream.
+	//-----------------------------------------------------------------------
+	public StreamingVector(TermVector reference, int window, int size)
+	{
+		if ((window != Unbounded) && (size <= 0))
+		{
+			throw new IllegalArgumentException("Window size must be positive: " + size);
+		}
+		m_Dictionary = reference.getDictionary();
+		int n = reference.length();
+		m_Reference = new int[n];
+		m_TermIds = new int[n];
+		m_Words = new String[Math.max(16, n * 2)];
+		m_Hashes = new int[m_Words.length];
+		int capacity = WordCounter.InitialCapacity;
+		while (capacity < n * 2)
+		{
+			capacity *= 2;
+		}
+		m_Slots = new int[capacity];
+		m_SlotsUsed = 0;
+		m_FreeIds = new int[16];
+		m_FreeCount = 0;
+		for (int i=0; i<n; i++)
+		{
+			m_Reference[i] = reference.getCount(i);
+			m_TermIds[i] = reference.getTermId(i);
+			m_Words[i] = m_Dictionary.getTerm(m_TermIds[i]);
+			m_Hashes[i] = m_Words[i].hashCode();
+			Insert(i);
+		}
+		m_NextId = n;
+		m_ReferenceNorm = reference.Norm();
+
+		m_Window = window;
+		m_WindowSize = (window == Unbounded) ? 0 : size;
+		m_Tokenizer = new WordTokenizer(this);
+		m_Counts = new int[m_Words.length];
+		m_Ring = new int[m_WindowSize];
+		m_Next = 0;
+		m_Filled = 0;
+		m_SquaredNorm = 0;
+		m_DotProduct = 0;
+		m_TokenCount = 0;
+		m_WindowCount = 0;
+		m_LastWindowAngle = Math.PI / 2;
+	}
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates an empty streaming vector, compared against the
+	// vector of a file.  A file that failed to load has no words.
+	//-----------------------------------------------------------------------
+	public StreamingVector(VectorTextFile3 reference, int window, int size)
+	{
+		this((reference.m_CountedWords != null) ? reference.m_CountedWords
+				: new TermVector(TermDictionary.Global, new int[0], new int[0], 0),
+			window, size);
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// feed: Adds the words in the next block of the stream's raw bytes.
+	// A word cut at the end of the block is completed by the next block.
+	//-----------------------------------------------------------------------
+	public void feed(ByteBuffer block)
+	{
+		m_Tokenizer.feed(block);
+	}
+
+	//-----------------------------------------------------------------------
+	// feed: Adds the words in the next block of the stream's characters.
+	// A word cut at the end of the block is completed by the next block.
+	//-----------------------------------------------------------------------
+	public void feed(char[] chars, int offset, int length)
+	{
+		m_Tokenizer.feed(chars, offset, length);
+	}
+
+	//-----------------------------------------------------------------------
+	// finish: Adds the word left at the end of the stream, if any.
+	//-----------------------------------------------------------------------
+	public void finish()
+	{
+		m_Tokenizer.finish();
+	}
+
+	//-----------------------------------------------------------------------
+	// Read: Adds every word of a byte stream.
+	//
+	// Input: The stream, which is read to its end but not closed.
+	// Output: The number of words added.
+	// Properties: For a stream that does not end, e.g., a socket, call
+	// feed on each block read instead, checking the angle in between.
+	//-----------------------------------------------------------------------
+	public long Read(InputStream in) throws IOException
+	{
+		long start = m_TokenCount;
+		byte[] buffer = new byte[ReadSize];
+		int iRead;
+		while ((iRead = in.read(buffer)) >= 0)
+		{
+			feed(ByteBuffer.wrap(buffer, 0, iRead));
+		}
+		finish();
+		return m_TokenCount - start;
+	}
+
+	//-----------------------------------------------------------------------
+	// Read: Adds every word of a character stream, as above.
+	//-----------------------------------------------------------------------
+	public long Read(Reader in) throws IOException
+	{
+		long start = m_TokenCount;
+		char[] buffer = new char[ReadSize];
+		int iRead;
+		while ((iRead = in.read(buffer)) >= 0)
+		{
+			feed(buffer, 0, iRead);
+		}
+		finish();
+		return m_TokenCount - start;
+	}
+
+	//-----------------------------------------------------------------------
+	// addToken: Adds a word to the window, as the TokenSink of the
+	// tokenizer.
+	//
+	// Methodology: The word's local id is found by one hash lookup on its
+	// characters, without creating a String unless the word is new to the
+	// window.  The word's count, the squared norm and the dot product are
+	// each updated in O(1).  In a full sliding window the oldest word is
+	// removed first, and when a tumbling window fills, its angle is
+	// recorded and its words are removed, which is O(1) per word overall.
+	//-----------------------------------------------------------------------
+	public void addToken(char[] word, int length)
+	{
+		m_TokenCount++;
+		if (m_Window == Unbounded)
+		{
+			Add(Lookup(word, length));
+			return;
+		}
+
+		// Evict before looking the word up: if the oldest word is this same
+		// word, leaving the window may free its id, which must not then be
+		// counted under.
+		if (m_Filled == m_WindowSize)
+		{
+			// Only a sliding window is ever left full.
+			Remove(m_Ring[m_Next]);
+		}
+		else
+		{
+			m_Filled++;
+		}
+		int id = Lookup(word, length);
+		m_Ring[m_Next] = id;
+		m_Next = (m_Next + 1) % m_WindowSize;
+		Add(id);
+
+		if ((m_Window == TumblingWindow) && (m_Filled == m_WindowSize))
+		{
+			m_LastWindowAngle = getAngle();
+			m_WindowCount++;
+			for (int i=0; i<m_Filled; i++)
+			{
+				Remove(m_Ring[i]);
+			}
+			m_Filled = 0;
+			m_Next = 0;
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// getAngle: Returns the angle between the current window and the
+	// reference, in O(1).
+	//
+	// Output: An angle between [0,pi/2], computed as in
+	// VectorTextFile3.Angle.  An empty window, or reference, is taken to
+	// have nothing in common with the other, at pi/2.
+	//-----------------------------------------------------------------------
+	public double getAngle()
+	{
+		if ((m_SquaredNorm == 0) || (m_ReferenceNorm == 0))
+		{
+			return Math.PI / 2;
+		}
+		double result = Math.min(1.0, m_DotProduct / (Math.sqrt((double)m_SquaredNorm) * m_ReferenceNorm));
+		return Math.acos(result);
+	}
+
+	//-----------------------------------------------------------------------
+	// getLastWindowAngle: Returns the angle to the reference of the last
+	// tumbling window completed, or pi/2 if none has been.
+	//-----------------------------------------------------------------------
+	public double getLastWindowAngle()
+	{
+		return m_LastWindowAngle;
+	}
+
+	//-----------------------------------------------------------------------
+	// getWindowCount: Returns the number of tumbling windows completed.
+	//-----------------------------------------------------------------------
+	public long getWindowCount()
+	{
+		return m_WindowCount;
+	}
+
+	//-----------------------------------------------------------------------
+	// getWindowLength: Returns the number of words in the current window.
+	//-----------------------------------------------------------------------
+	public int getWindowLength()
+	{
+		return (m_Window == Unbounded) ? (int)Math.min(m_TokenCount, Integer.MAX_VALUE) : m_Filled;
+	}
+
+	//-----------------------------------------------------------------------
+	// getTokenCount: Returns the number of words seen in the whole stream.
+	//-----------------------------------------------------------------------
+	public long getTokenCount()
+	{
+		return m_TokenCount;
+	}
+
+	//-----------------------------------------------------------------------
+	// getDotProduct: Returns the dot product of the window and the reference.
+	//-----------------------------------------------------------------------
+	public long getDotProduct()
+	{
+		return m_DotProduct;
+	}
+
+	//-----------------------------------------------------------------------
+	// getSquaredNorm: Returns the sum of the window's squared counts.
+	//-----------------------------------------------------------------------
+	public long getSquaredNorm()
+	{
+		return m_SquaredNorm;
+	}
+
+	//-----------------------------------------------------------------------
+	// toTermVector: Returns the current window as a TermVector, e.g., to
+	// store it or compare it with other vectors.  Takes time proportional
+	// to the number of local ids in use.
+	// Properties: Words of the window not in the reference are added to
+	// the dictionary here, since a TermVector needs their ids; only
+	// calling this adds words to the dictionary.
+	//-----------------------------------------------------------------------
+	public TermVector toTermVector()
+	{
+		int length = 0;
+		for (int i=0; i<m_NextId; i++)
+		{
+			if (m_Counts[i] != 0)
+			{
+				length++;
+			}
+		}
+		int[] termIds = new int[length];
+		int[] counts = new int[length];
+		int j = 0;
+		for (int i=0; i<m_NextId; i++)
+		{
+			if (m_Counts[i] != 0)
+			{
+				termIds[j] = (i < m_TermIds.length) ? m_TermIds[i] : m_Dictionary.getId(m_Words[i]);
+				counts[j] = m_Counts[i];
+				j++;
+			}
+		}
+		return new TermVector(m_Dictionary, termIds, counts, length);
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Add: Counts one more occurrence of a term id.  Since
+	// (c+1)^2 - c^2 = 2c+1, the squared norm changes by 2c+1, and the dot
+	// product by the id's count in the reference.
+	//-----------------------------------------------------------------------
+	private void Add(int id)
+	{
+		int count = m_Counts[id];
+		m_Counts[id] = count + 1;
+		m_SquaredNorm += 2L*count + 1;
+		if (id < m_Reference.length)
+		{
+			m_DotProduct += m_Reference[id];
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// Remove: Counts one fewer occurrence of a term id in the window, the
+	// reverse of Add.  A word not in the reference that leaves the window
+	// gives up its local id.
+	//-----------------------------------------------------------------------
+	private void Remove(int id)
+	{
+		int count = m_Counts[id];
+		m_Counts[id] = count - 1;
+		m_SquaredNorm -= 2L*count - 1;
+		if (id < m_Reference.length)
+		{
+			m_DotProduct -= m_Reference[id];
+		}
+		else if (count == 1)
+		{
+			Release(id);
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// Lookup: Returns the local id of a word, giving a word not yet in the
+	// table a stream-local id, a freed one if there is any.
+	//-----------------------------------------------------------------------
+	private int Lookup(char[] word, int length)
+	{
+		// Compute the same hash as String.hashCode().
+		int hash = 0;
+		for (int i=0; i<length; i++)
+		{
+			hash = 31*hash + word[i];
+		}
+
+		int mask = m_Slots.length - 1;
+		int slot = WordCounter.Spread(hash) & mask;
+		while (m_Slots[slot] != 0)
+		{
+			int id = m_Slots[slot] - 1;
+			if ((m_Hashes[id] == hash) && WordCounter.Matches(m_Words[id], word, length))
+			{
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		// The word is new to the stream's window.
+		int id;
+		if (m_FreeCount > 0)
+		{
+			m_FreeCount--;
+			id = m_FreeIds[m_FreeCount];
+		}
+		else
+		{
+			id = m_NextId;
+			m_NextId++;
+			if (id == m_Words.length)
+			{
+				m_Words = Arrays.copyOf(m_Words, id * 2);
+				m_Hashes = Arrays.copyOf(m_Hashes, id * 2);
+				m_Counts = Arrays.copyOf(m_Counts, id * 2);
+			}
+		}
+		m_Words[id] = new String(word, 0, length);
+		m_Hashes[id] = hash;
+		Insert(id);
+		return id;
+	}
+
+	//-----------------------------------------------------------------------
+	// Insert: Puts a local id in the hash table, under the hash of its word,
+	// doubling the table when it is half full.
+	//-----------------------------------------------------------------------
+	private void Insert(int id)
+	{
+		if ((m_SlotsUsed + 1) * 2 > m_Slots.length)
+		{
+			int[] old = m_Slots;
+			m_Slots = new int[old.length * 2];
+			m_SlotsUsed = 0;
+			for (int i=0; i<old.length; i++)
+			{
+				if (old[i] != 0)
+				{
+					Insert(old[i] - 1);
+				}
+			}
+		}
+		int mask = m_Slots.length - 1;
+		int slot = WordCounter.Spread(m_Hashes[id]) & mask;
+		while (m_Slots[slot] != 0)
+		{
+			slot = (slot + 1) & mask;
+		}
+		m_Slots[slot] = id + 1;
+		m_SlotsUsed++;
+	}
+
+	//-----------------------------------------------------------------------
+	// Release: Takes a stream-local id out of the hash table and keeps it
+	// to be used again, so that the table and the id space only hold the
+	// words of the current window.
+	//
+	// Methodology: The slot is emptied, and the ids probed after it are
+	// shifted back into it where their own probe sequence allows, so that
+	// no search stops early at the hole.
+	//-----------------------------------------------------------------------
+	private void Release(int id)
+	{
+		int mask = m_Slots.length - 1;
+		int slot = WordCounter.Spread(m_Hashes[id]) & mask;
+		while (m_Slots[slot] != id + 1)
+		{
+			slot = (slot + 1) & mask;
+		}
+		m_Slots[slot] = 0;
+		m_SlotsUsed--;
+		int next = (slot + 1) & mask;
+		while (m_Slots[next] != 0)
+		{
+			int home = WordCounter.Spread(m_Hashes[m_Slots[next] - 1]) & mask;
+			// Move the id back unless its home lies after the hole.
+			if (((next - home) & mask) >= ((next - slot) & mask))
+			{
+				m_Slots[slot] = m_Slots[next];
+				m_Slots[next] = 0;
+				slot = next;
+			}
+			next = (next + 1) & mask;
+		}
+
+		m_Words[id] = null;
+		if (m_FreeCount == m_FreeIds.length)
+		{
+			m_FreeIds = Arrays.copyOf(m_FreeIds, m_FreeCount * 2);
+		}
+		m_FreeIds[m_FreeCount] = id;
+		m_FreeCount++;
+	}
+}
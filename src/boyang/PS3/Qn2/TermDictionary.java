@@ -0,0 +1,128 @@
+/****************************************************************************
+ Class: TermDictionary
+ Purpose: Maps each distinct word to a dense integer id (0, 1, 2, ...), so
+ that vectors built against the same dictionary can compare words by id.
+ The dictionary is safe to use from many threads at once.
+ 
+ Constructor: TermDictionary()
+ Behavior: Creates an empty dictionary.
+ 
+ Public Class Methods:
+ 	int getId(String term) : Returns the id of a word, assigning a new id
+ 		if the word has not been seen.
+ 	int findId(String term) : Returns the id of a word, or -1 if the word
+ 		has not been seen.
+ 	String getTerm(int id) : Returns the word with the given id.
+ 	int size() : Returns the number of words in the dictionary.
+ 	
+ Static Variables:
+ 	TermDictionary Global : The corpus-wide dictionary shared by 
+ 		VectorTextFile, VectorTextFile2 and VectorTextFile3.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Class declaration:
+public class TermDictionary
+{
+	/*****************************
+	 * Class member variables 
+	 *****************************/
+	// The corpus-wide dictionary
+	public static final TermDictionary Global = new TermDictionary();
+	
+	// Id of each word
+	ConcurrentHashMap<String, Integer> m_Ids;
+	
+	// Word with each id (replaced, never modified in place, when it grows)
+	volatile String[] m_Terms;
+	
+	// Number of words in the dictionary
+	volatile int m_Size;
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Creates an empty dictionary.
+	//-----------------------------------------------------------------------
+	public TermDictionary()
+	{
+		m_Ids = new ConcurrentHashMap<String, Integer>();
+		m_Terms = new String[1024];
+		m_Size = 0;
+	}
+	
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// getId: Returns the id of a word, assigning the next free id if the 
+	// word is new.
+	//
+	// Methodology: Known words are found without locking.  New words are
+	// assigned under the dictionary's lock, after checking again that no
+	// other thread has just added the same word.  The word is stored in
+	// m_Terms before its id is published in m_Ids, so any thread that can
+	// see an id can also look up its word.
+	//-----------------------------------------------------------------------
+	public int getId(String term)
+	{
+		Integer id = m_Ids.get(term);
+		if (id != null)
+		{
+			return id;
+		}
+		
+		synchronized (this)
+		{
+			id = m_Ids.get(term);
+			if (id == null)
+			{
+				String[] terms = m_Terms;
+				if (m_Size == terms.length)
+				{
+					String[] larger = new String[terms.length * 2];
+					System.arraycopy(terms, 0, larger, 0, m_Size);
+					terms = larger;
+				}
+				terms[m_Size] = term;
+				m_Terms = terms;
+				id = m_Size;
+				m_Size = m_Size + 1;
+				m_Ids.put(term, id);
+			}
+			return id;
+		}
+	}
+	
+	//-----------------------------------------------------------------------
+	// findId: Returns the id of a word, or -1 if it is not in the dictionary.
+	//-----------------------------------------------------------------------
+	public int findId(String term)
+	{
+		Integer id = m_Ids.get(term);
+		return (id == null) ? -1 : id;
+	}
+	
+	//-----------------------------------------------------------------------
+	// getTerm: Returns the word with the given id.
+	//-----------------------------------------------------------------------
+	public String getTerm(int id)
+	{
+		if ((id < 0) || (id >= m_Size))
+		{
+			throw new IndexOutOfBoundsException("No term with id " + id);
+		}
+		return m_Terms[id];
+	}
+	
+	//-----------------------------------------------------------------------
+	// size: Returns the number of words in the dictionary.
+	//-----------------------------------------------------------------------
+	public int size()
+	{
+		return m_Size;
+	}
+}
@@ -0,0 +1,540 @@
+/****************************************************************************
+ Class: TermVector
+ Purpose: Represents a text as a compact vector: two parallel arrays
+ holding, for each distinct word, its id in a TermDictionary and the 
+ number of times it occurs.  Entries are sorted by term id.
+ 
+ Constructor: TermVector(TermDictionary dictionary, int[] termIds,
+ 	int[] counts, int length)
+ Behavior: Builds a vector from the first length (id, count) entries of
+ the arrays, which need not be sorted.
+ 
+ Public Class Methods:
+ 	int length() : Returns the number of distinct words.
+ 	int getTermId(int i) : Returns the term id of entry i.
+ 	int getCount(int i) : Returns the count of entry i.
+ 	TermDictionary getDictionary() : Returns the dictionary of the ids.
+ 	long getSquaredNorm() : Returns DotProduct(this, this).
+ 	double Norm() : Returns the norm of the vector.
+ 	
+ Static Methods:
+ 	long DotProduct(TermVector A, TermVector B) : 
+ 		Returns the dot product of two vectors.
+ 	double Angle(TermVector A, TermVector B) :
+ 		Returns the angle between two vectors.
+ 	TermVector Update(TermVector base, TermVector added, TermVector removed) :
+ 		Returns the vector of base's text with words added and removed.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.util.Arrays;
+
+// Class declaration:
+public class TermVector
+{
+	/*****************************
+	 * Class member variables 
+	 *****************************/
+	// Dictionary that the term ids refer to
+	TermDictionary m_Dictionary;
+	
+	// Term id of each entry, in increasing order
+	int[] m_TermIds;
+	
+	// Count of each entry
+	int[] m_Counts;
+	
+	// Sum of the squared counts, i.e., DotProduct(this, this)
+	long m_SquaredNorm;
+	
+	// Intersection strategies: a vector at least GallopRatio times longer
+	// than the other is searched by galloping, and a vector of at least
+	// HashMinLength entries met by one of at most TinyLength entries is
+	// probed through a hash table of its ids.
+	static final int GallopRatio = 16;
+	static final int TinyLength = 8;
+	static final int HashMinLength = 1024;
+	
+	// Open-addressing table from term id to entry index + 1 (0 is empty),
+	// built the first time the vector is probed, or null
+	volatile int[] m_Positions;
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Builds a vector from (term id, count) entries.
+	//
+	// Input: The dictionary that the ids refer to, arrays of term ids and
+	// counts, and the number of entries to use from them.
+	// Assumptions: The term ids are distinct, and the counts are positive.
+	// Properties: On completion, m_TermIds and m_Counts have exactly length
+	// entries, sorted by term id, and m_SquaredNorm holds the sum of the
+	// squared counts.  The input arrays are not modified.
+	//-----------------------------------------------------------------------
+	public TermVector(TermDictionary dictionary, int[] termIds, int[] counts, int length)
+	{
+		m_Dictionary = dictionary;
+		m_TermIds = new int[length];
+		m_Counts = new int[length];
+		
+		// Pack each entry into one long (id in the high half) so that a 
+		// single primitive sort orders them by id.
+		long[] packed = new long[length];
+		for (int i=0; i<length; i++)
+		{
+			packed[i] = ((long)termIds[i] << 32) | (counts[i] & 0xFFFFFFFFL);
+		}
+		Arrays.sort(packed);
+		
+		for (int i=0; i<length; i++)
+		{
+			m_TermIds[i] = (int)(packed[i] >>> 32);
+			m_Counts[i] = (int)packed[i];
+		}
+		m_SquaredNorm = DotKernels.Default.SquaredNorm(m_Counts, length);
+	}
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates a vector whose fields are set by WithSquaredNorm.
+	//-----------------------------------------------------------------------
+	private TermVector()
+	{
+	}
+
+	//-----------------------------------------------------------------------
+	// WithSquaredNorm: Wraps arrays that already form a vector.
+	//
+	// Input: The dictionary, arrays of term ids and counts of equal length,
+	// and the sum of the squared counts.
+	// Output: A vector holding the arrays themselves.
+	// Assumptions: The term ids are distinct and in increasing order, and
+	// squaredNorm is correct.  Used when loading stored vectors, or when
+	// deriving one vector from another, so that they are neither sorted
+	// nor copied again.
+	//-----------------------------------------------------------------------
+	static TermVector WithSquaredNorm(TermDictionary dictionary, int[] termIds, int[] counts, long squaredNorm)
+	{
+		TermVector vector = new TermVector();
+		vector.m_Dictionary = dictionary;
+		vector.m_TermIds = termIds;
+		vector.m_Counts = counts;
+		vector.m_SquaredNorm = squaredNorm;
+		return vector;
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// length: Returns the number of distinct words in the vector.
+	//-----------------------------------------------------------------------
+	public int length()
+	{
+		return m_TermIds.length;
+	}
+	
+	//-----------------------------------------------------------------------
+	// getTermId: Returns the term id of entry i.
+	//-----------------------------------------------------------------------
+	public int getTermId(int i)
+	{
+		return m_TermIds[i];
+	}
+	
+	//-----------------------------------------------------------------------
+	// getCount: Returns the count of entry i.
+	//-----------------------------------------------------------------------
+	public int getCount(int i)
+	{
+		return m_Counts[i];
+	}
+	
+	//-----------------------------------------------------------------------
+	// getDictionary: Returns the dictionary that the term ids refer to.
+	//-----------------------------------------------------------------------
+	public TermDictionary getDictionary()
+	{
+		return m_Dictionary;
+	}
+	
+	//-----------------------------------------------------------------------
+	// getSquaredNorm: Returns the sum of the squared counts, which was 
+	// computed when the vector was built.
+	//-----------------------------------------------------------------------
+	public long getSquaredNorm()
+	{
+		return m_SquaredNorm;
+	}
+	
+	//-----------------------------------------------------------------------
+	// Norm: Returns the norm of the vector, i.e., the square-root of 
+	// DotProduct(this, this), without recomputing the dot product.
+	//-----------------------------------------------------------------------
+	public double Norm()
+	{
+		return Math.sqrt((double)m_SquaredNorm);
+	}
+	
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		for (int i=0; i<m_TermIds.length; i++) {
+			s.append("[").append(m_Dictionary.getTerm(m_TermIds[i])).append(", ").append(m_Counts[i]).append("]\n");
+		}
+		return s.toString();
+	}
+	
+	/*****************************
+	 * Static Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// DotProduct: Calculates the dot-product of two vectors.
+	//			
+	// Input: Two vectors built against the same dictionary.
+	// Output: A long integer representing their dot-product.
+	// Methodology: Only terms found in both vectors contribute, so the work
+	// is finding the intersection of the two sorted id lists, by one of
+	// three strategies chosen by their lengths:
+	// (a) Vectors of similar length are walked together, as in the original
+	//     VectorTextFile3.DotProduct, in O(m + n) steps, by 
+	//     DotKernel.IntersectDot, which with the Vector API compares each id
+	//     of the short vector with a whole block of the long one at once.
+	// (b) When one is at least GallopRatio times longer, each id of the short
+	//     vector is found in the long one by galloping: probing 1, 2, 4, ...
+	//     entries ahead of the last match, then binary searching the last
+	//     step, in O(m log(n/m)) steps.
+	// (c) When the short vector has at most TinyLength entries and the long
+	//     one at least HashMinLength, each id is looked up in a hash table of
+	//     the long vector, in O(m) steps.  The table is built the first time
+	//     it is needed and kept, which pays off when, as usual, a long
+	//     document is scored against many short queries.
+	// In every case the sum is accumulated in a long so that large 
+	// documents cannot overflow it.
+	//-----------------------------------------------------------------------
+	public static long DotProduct(TermVector A, TermVector B)
+	{
+		if (A.m_Dictionary != B.m_Dictionary)
+		{
+			throw new IllegalArgumentException("Vectors were built against different dictionaries.");
+		}
+		
+		// Let A be the shorter vector.
+		if (A.m_TermIds.length > B.m_TermIds.length)
+		{
+			TermVector temp = A;
+			A = B;
+			B = temp;
+		}
+		int m = A.m_TermIds.length;
+		int n = B.m_TermIds.length;
+		if (m == 0)
+		{
+			return 0;
+		}
+		if ((m <= TinyLength) && (n >= HashMinLength))
+		{
+			return ProbeDotProduct(A, B);
+		}
+		if (n / m >= GallopRatio)
+		{
+			return GallopDotProduct(A, B);
+		}
+		return MergeDotProduct(A, B);
+	}
+	
+	//-----------------------------------------------------------------------
+	// Angle: Calculates the angle between two vectors.
+	//
+	// Input: Two vectors built against the same dictionary.
+	// Output: An angle between [0,pi/2], arccos((AB)/(|A|*|B|)) as in
+	// VectorTextFile3.Angle.  A vector with no words is taken to have
+	// nothing in common with the other, at pi/2.
+	//-----------------------------------------------------------------------
+	public static double Angle(TermVector A, TermVector B)
+	{
+		long dot = DotProduct(A, B);
+		if ((A.m_SquaredNorm == 0) || (B.m_SquaredNorm == 0))
+		{
+			return Math.PI / 2;
+		}
+		// Rounding can push this just past 1 for identical vectors, so clamp it.
+		return Math.acos(Math.min(1.0, dot / (A.Norm() * B.Norm())));
+	}
+	
+	//-----------------------------------------------------------------------
+	// Update: Applies a change of text to a vector, without rebuilding it.
+	//
+	// Input: The vector of a text, and the vectors of the words added to and
+	// removed from it, all built against the same dictionary.  Either
+	// change may be null for none.
+	// Output: The vector of the changed text, i.e., base + added - removed.
+	// Terms whose count falls to 0 are dropped.  The inputs are unchanged,
+	// so threads still reading base are not disturbed.
+	// Assumptions: Every word removed occurs in the text at least as many
+	// times as it is removed; otherwise an IllegalArgumentException is
+	// thrown.
+	// Methodology: The two changes are merged into one list of signed
+	// count deltas, and each changed term is found in base by galloping,
+	// as in GallopDotProduct.  The squared norm is updated term by term,
+	// since only changed terms alter it, by new^2 - old^2.  If no term is
+	// added to or dropped from the distinct list, as for most appends to a
+	// log, only the counts are copied: the id array and the hash table of
+	// ids are shared with base.  Otherwise base and the deltas are merged
+	// into new arrays in one pass.  Either way nothing is sorted again
+	// beyond the d changed terms, so the work is O(n + d log n) rather than
+	// that of re-reading and counting the whole text.
+	//-----------------------------------------------------------------------
+	public static TermVector Update(TermVector base, TermVector added, TermVector removed)
+	{
+		if (((added != null) && (added.m_Dictionary != base.m_Dictionary))
+			|| ((removed != null) && (removed.m_Dictionary != base.m_Dictionary)))
+		{
+			throw new IllegalArgumentException("Vectors were built against different dictionaries.");
+		}
+		
+		// Merge the two changes into sorted ids with signed deltas.
+		int[] addIds = (added == null) ? new int[0] : added.m_TermIds;
+		int[] addCounts = (added == null) ? new int[0] : added.m_Counts;
+		int[] removeIds = (removed == null) ? new int[0] : removed.m_TermIds;
+		int[] removeCounts = (removed == null) ? new int[0] : removed.m_Counts;
+		int[] ids = new int[addIds.length + removeIds.length];
+		long[] deltas = new long[ids.length];
+		int d = 0;
+		int Aindex = 0;
+		int Rindex = 0;
+		while ((Aindex < addIds.length) || (Rindex < removeIds.length))
+		{
+			if ((Rindex == removeIds.length) || ((Aindex < addIds.length) && (addIds[Aindex] < removeIds[Rindex])))
+			{
+				ids[d] = addIds[Aindex];
+				deltas[d] = addCounts[Aindex];
+				Aindex++;
+			}
+			else if ((Aindex == addIds.length) || (removeIds[Rindex] < addIds[Aindex]))
+			{
+				ids[d] = removeIds[Rindex];
+				deltas[d] = -(long)removeCounts[Rindex];
+				Rindex++;
+			}
+			else
+			{
+				ids[d] = addIds[Aindex];
+				deltas[d] = (long)addCounts[Aindex] - removeCounts[Rindex];
+				Aindex++;
+				Rindex++;
+			}
+			if (deltas[d] != 0)
+			{
+				d++;
+			}
+		}
+		
+		// Find each changed term in base, noting whether the distinct list
+		// changes, and update the squared norm.
+		int[] Bids = base.m_TermIds;
+		int n = Bids.length;
+		int[] positions = new int[d];
+		boolean reshaped = false;
+		long squaredNorm = base.m_SquaredNorm;
+		int low = 0;
+		for (int i=0; i<d; i++)
+		{
+			int bound = 1;
+			while ((bound <= n - low) && (Bids[low + bound - 1] < ids[i]))
+			{
+				bound *= 2;
+			}
+			int position = Arrays.binarySearch(Bids, low + bound/2, Math.min(n, low + bound), ids[i]);
+			long oldCount = 0;
+			if (position >= 0)
+			{
+				oldCount = base.m_Counts[position];
+				low = position + 1;
+			}
+			else
+			{
+				low = -position - 1;
+			}
+			long newCount = oldCount + deltas[i];
+			if (newCount < 0)
+			{
+				throw new IllegalArgumentException("Removed a word more times than it occurs: " + base.m_Dictionary.getTerm(ids[i]));
+			}
+			if (newCount > Integer.MAX_VALUE)
+			{
+				throw new IllegalArgumentException("Count overflow for word: " + base.m_Dictionary.getTerm(ids[i]));
+			}
+			if ((position < 0) || (newCount == 0))
+			{
+				reshaped = true;
+			}
+			positions[i] = position;
+			squaredNorm += newCount*newCount - oldCount*oldCount;
+		}
+		
+		if (!reshaped)
+		{
+			int[] counts = base.m_Counts.clone();
+			for (int i=0; i<d; i++)
+			{
+				counts[positions[i]] += (int)deltas[i];
+			}
+			TermVector result = WithSquaredNorm(base.m_Dictionary, Bids, counts, squaredNorm);
+			result.m_Positions = base.m_Positions;
+			return result;
+		}
+		
+		// Merge base with the deltas, dropping terms whose count is 0.
+		int[] newIds = new int[n + d];
+		int[] newCounts = new int[n + d];
+		int length = 0;
+		int Bindex = 0;
+		int Dindex = 0;
+		while ((Bindex < n) || (Dindex < d))
+		{
+			int id;
+			long count;
+			if ((Dindex == d) || ((Bindex < n) && (Bids[Bindex] < ids[Dindex])))
+			{
+				id = Bids[Bindex];
+				count = base.m_Counts[Bindex];
+				Bindex++;
+			}
+			else if ((Bindex == n) || (ids[Dindex] < Bids[Bindex]))
+			{
+				id = ids[Dindex];
+				count = deltas[Dindex];
+				Dindex++;
+			}
+			else
+			{
+				id = Bids[Bindex];
+				count = base.m_Counts[Bindex] + deltas[Dindex];
+				Bindex++;
+				Dindex++;
+			}
+			if (count != 0)
+			{
+				newIds[length] = id;
+				newCounts[length] = (int)count;
+				length++;
+			}
+		}
+		return WithSquaredNorm(base.m_Dictionary, Arrays.copyOf(newIds, length), Arrays.copyOf(newCounts, length), squaredNorm);
+	}
+	
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// MergeDotProduct: Walks the two sorted id lists together, through the
+	// DotKernel, which compares a block of ids at once with SIMD where the
+	// JVM supports it.
+	//-----------------------------------------------------------------------
+	private static long MergeDotProduct(TermVector A, TermVector B)
+	{
+		return DotKernels.Default.IntersectDot(A.m_TermIds, A.m_Counts, A.m_TermIds.length,
+			B.m_TermIds, B.m_Counts, B.m_TermIds.length);
+	}
+	
+	//-----------------------------------------------------------------------
+	// GallopDotProduct: Finds each id of the short vector A in the long 
+	// vector B by exponential search from the previous match.
+	//-----------------------------------------------------------------------
+	private static long GallopDotProduct(TermVector A, TermVector B)
+	{
+		int[] Aids = A.m_TermIds;
+		int[] Bids = B.m_TermIds;
+		int n = Bids.length;
+		int low = 0;
+		long sum = 0;
+		for (int Aindex=0; (Aindex < Aids.length) && (low < n); Aindex++)
+		{
+			int id = Aids[Aindex];
+			
+			// Every id before low + bound/2 is smaller than id, and the one at
+			// low + bound - 1, if any, is not.
+			int bound = 1;
+			while ((bound <= n - low) && (Bids[low + bound - 1] < id))
+			{
+				bound *= 2;
+			}
+			int position = Arrays.binarySearch(Bids, low + bound/2, Math.min(n, low + bound), id);
+			if (position >= 0)
+			{
+				sum += (long)A.m_Counts[Aindex] * B.m_Counts[position];
+				low = position + 1;
+			}
+			else
+			{
+				low = -position - 1;
+			}
+		}
+		return sum;
+	}
+	
+	//-----------------------------------------------------------------------
+	// ProbeDotProduct: Looks each id of the tiny vector A up in the hash
+	// table of the long vector B.
+	//-----------------------------------------------------------------------
+	private static long ProbeDotProduct(TermVector A, TermVector B)
+	{
+		int[] table = B.Positions();
+		int mask = table.length - 1;
+		long sum = 0;
+		for (int Aindex=0; Aindex<A.m_TermIds.length; Aindex++)
+		{
+			int id = A.m_TermIds[Aindex];
+			int slot = Slot(id, mask);
+			while (table[slot] != 0)
+			{
+				int Bindex = table[slot] - 1;
+				if (B.m_TermIds[Bindex] == id)
+				{
+					sum += (long)A.m_Counts[Aindex] * B.m_Counts[Bindex];
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+		return sum;
+	}
+	
+	//-----------------------------------------------------------------------
+	// Positions: Returns the hash table of this vector's ids, building it
+	// if needed.  Two threads may both build it; either table is correct.
+	//-----------------------------------------------------------------------
+	private int[] Positions()
+	{
+		int[] table = m_Positions;
+		if (table == null)
+		{
+			// At most half full, so that probe sequences stay short.
+			int capacity = Integer.highestOneBit(Math.max(2, m_TermIds.length) - 1) << 2;
+			table = new int[capacity];
+			int mask = capacity - 1;
+			for (int i=0; i<m_TermIds.length; i++)
+			{
+				int slot = Slot(m_TermIds[i], mask);
+				while (table[slot] != 0)
+				{
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = i + 1;
+			}
+			m_Positions = table;
+		}
+		return table;
+	}
+	
+	//-----------------------------------------------------------------------
+	// Slot: Returns the home slot of a term id, scattering consecutive ids.
+	//-----------------------------------------------------------------------
+	private static int Slot(int id, int mask)
+	{
+		int hash = id * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
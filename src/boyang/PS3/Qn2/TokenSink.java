@@ -0,0 +1,24 @@
+/****************************************************************************
+ Interface: TokenSink
+ Purpose: Receives the words produced by a WordTokenizer, one at a time.
+ 
+ Methods:
+ 	void addToken(char[] word, int length) : Accepts the next word.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+// Interface declaration:
+public interface TokenSink
+{
+	//-----------------------------------------------------------------------
+	// addToken: Accepts the next word from the tokenizer.
+	//
+	// Input: A character buffer, and the number of characters at its start
+	// that make up the word.
+	// Assumptions: The buffer is owned by the tokenizer and is overwritten
+	// by the next word, so a sink that keeps the word must copy it.
+	//-----------------------------------------------------------------------
+	void addToken(char[] word, int length);
+}
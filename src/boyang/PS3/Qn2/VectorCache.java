@@ -0,0 +1,231 @@
+/****************************************************************************
+ Class: VectorCache
+ Purpose: Keeps recently built VectorTextFile3 objects, so that asking for
+ the vector of the same unchanged file again does not read, sort and count
+ it again.  An entry is rebuilt automatically when its file's size or
+ modification time changes.
+
+ Constructor: VectorCache(int maxEntries, long maxTerms, int mode)
+ Behavior: Creates an empty cache holding at most maxEntries vectors with
+ at most maxTerms distinct words between them, building vectors with the
+ given counting mode.
+
+ Public Class Methods:
+ 	VectorTextFile3 Get(String fileName) : Returns the vector of a file,
+ 		from the cache if it is current.
+ 	void Invalidate(String fileName) : Drops the vector of a file.
+ 	void clear() : Drops every vector.
+ 	int size() : Returns the number of vectors held.
+ 	long getTermCount() : Returns the distinct words held, over all vectors.
+ 	long getHits() : Returns the number of Gets answered from the cache.
+ 	long getMisses() : Returns the number of Gets that built a vector.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+// Class declaration:
+public class VectorCache
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Limits on the number of vectors, and on their total length
+	int m_MaxEntries;
+	long m_MaxTerms;
+
+	// Counting mode used to build vectors
+	int m_Mode;
+
+	// Vectors by canonical file name, least recently used first
+	LinkedHashMap<String, Entry> m_Entries;
+
+	// Total length of the vectors held
+	long m_TermCount;
+
+	// Number of Gets answered from the cache, and not
+	long m_Hits;
+	long m_Misses;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates an empty cache.
+	//
+	// Input: The largest number of vectors to hold, the largest total number
+	// of distinct words to hold over all of them, and the counting mode
+	// (see VectorTextFile3) used to build vectors.
+	//-----------------------------------------------------------------------
+	public VectorCache(int maxEntries, long maxTerms, int mode)
+	{
+		m_MaxEntries = maxEntries;
+		m_MaxTerms = maxTerms;
+		m_Mode = mode;
+		m_Entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		m_TermCount = 0;
+		m_Hits = 0;
+		m_Misses = 0;
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Get: Returns the vector of a file.
+	//
+	// Input: The name of the file.
+	// Output: The vector of the file as it is now.  Cached vectors hold only
+	// their term vector, not the file's list of words.
+	// Properties: Safe to call from several threads at once.  A file that
+	// fails to build is not cached.
+	// Methodology: The file's size and modification time are compared with
+	// those recorded when its vector was built; if either differs, the
+	// vector is built again.  The vector is built outside the lock, so a
+	// slow build does not hold up other Gets, though two threads missing on
+	// the same file at once may both build it.  After adding a vector, the
+	// least recently used vectors are dropped until both limits are met,
+	// though the newest vector is always kept.
+	//-----------------------------------------------------------------------
+	public VectorTextFile3 Get(String fileName)
+	{
+		File file = new File(fileName);
+		String key = Key(file);
+		long modified = file.lastModified();
+		long size = file.length();
+
+		synchronized (this)
+		{
+			Entry entry = m_Entries.get(key);
+			if ((entry != null) && (entry.m_Modified == modified) && (entry.m_Size == size))
+			{
+				m_Hits++;
+				return entry.m_Vector;
+			}
+			m_Misses++;
+		}
+
+		VectorTextFile3 built = new VectorTextFile3(fileName, m_Mode);
+		if (built.m_CountedWords == null)
+		{
+			return built;
+		}
+		VectorTextFile3 vector = new VectorTextFile3(built.m_CountedWords);
+
+		synchronized (this)
+		{
+			Remove(key);
+			m_Entries.put(key, new Entry(vector, modified, size));
+			m_TermCount += vector.m_WordPairCount;
+
+			Iterator<Entry> eldest = m_Entries.values().iterator();
+			while ((m_Entries.size() > 1) && ((m_Entries.size() > m_MaxEntries) || (m_TermCount > m_MaxTerms)))
+			{
+				m_TermCount -= eldest.next().m_Vector.m_WordPairCount;
+				eldest.remove();
+			}
+		}
+		return vector;
+	}
+
+	//-----------------------------------------------------------------------
+	// Invalidate: Drops the vector of a file, if it is held.
+	//-----------------------------------------------------------------------
+	public synchronized void Invalidate(String fileName)
+	{
+		Remove(Key(new File(fileName)));
+	}
+
+	//-----------------------------------------------------------------------
+	// clear: Drops every vector.
+	//-----------------------------------------------------------------------
+	public synchronized void clear()
+	{
+		m_Entries.clear();
+		m_TermCount = 0;
+	}
+
+	//-----------------------------------------------------------------------
+	// size: Returns the number of vectors held.
+	//-----------------------------------------------------------------------
+	public synchronized int size()
+	{
+		return m_Entries.size();
+	}
+
+	//-----------------------------------------------------------------------
+	// getTermCount: Returns the total number of distinct words held, summed
+	// over all vectors.
+	//-----------------------------------------------------------------------
+	public synchronized long getTermCount()
+	{
+		return m_TermCount;
+	}
+
+	//-----------------------------------------------------------------------
+	// getHits and getMisses: Return the number of Gets answered from the
+	// cache, and the number that built a vector.
+	//-----------------------------------------------------------------------
+	public synchronized long getHits()
+	{
+		return m_Hits;
+	}
+
+	public synchronized long getMisses()
+	{
+		return m_Misses;
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Key: Returns the name a file is cached under, so that different paths
+	// to one file share an entry.
+	//-----------------------------------------------------------------------
+	private static String Key(File file)
+	{
+		try{
+			return file.getCanonicalPath();
+		}
+		catch (IOException e)
+		{
+			return file.getAbsolutePath();
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// Remove: Drops the entry under a key, if any.  Called with the lock held.
+	//-----------------------------------------------------------------------
+	private void Remove(String key)
+	{
+		Entry old = m_Entries.remove(key);
+		if (old != null)
+		{
+			m_TermCount -= old.m_Vector.m_WordPairCount;
+		}
+	}
+
+	/****************************************************************************
+	 Class: Entry
+	 Purpose: Holds a cached vector, with the size and modification time its
+	 file had when the vector was built.
+	 ***************************************************************************/
+	private static class Entry
+	{
+		VectorTextFile3 m_Vector;
+		long m_Modified;
+		long m_Size;
+
+		Entry(VectorTextFile3 vector, long modified, long size)
+		{
+			m_Vector = vector;
+			m_Modified = modified;
+			m_Size = size;
+		}
+	}
+}
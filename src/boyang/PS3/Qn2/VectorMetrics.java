@@ -0,0 +1,334 @@
+/****************************************************************************
+ Class: VectorMetrics
+ Purpose: Records how long each phase of building and comparing vectors
+ takes, along with the bytes, tokens and memory they use.  The metrics can
+ be read directly, exported as a JSON snapshot, or published as a JMX
+ MBean.
+
+ Constructor: VectorMetrics()
+ Behavior: Creates an empty set of metrics.
+
+ Public Class Methods:
+ 	void RecordPhase(int phase, long nanos) : Records one phase latency.
+ 	void RecordBuild(long bytes, long tokens, long allocatedBytes) :
+ 		Records the totals of one vector build.
+ 	boolean SampleComparison() : Counts one similarity call, telling
+ 		whether to measure it.
+ 	void RecordComparison(long nanos, long allocatedBytes) : Records a
+ 		measured similarity call.
+ 	LatencyHistogram getPhase(int phase) : Returns a phase's histogram.
+ 	String getSnapshot() : Returns every metric as a JSON object.
+ 	void Register() : Publishes the metrics as a JMX MBean.
+ 	void reset() : Clears every metric.
+
+ Static Methods:
+ 	long ThreadAllocatedBytes() : Returns the bytes allocated so far by
+ 		the current thread, or -1 if the JVM cannot tell.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Class declaration:
+public class VectorMetrics implements VectorMetricsMBean
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Phases: reading and tokenizing a file, sorting its words, counting
+	// them, the whole vector build, and one similarity (Angle) call.
+	public static final int Parse = 0;
+	public static final int Sort = 1;
+	public static final int Count = 2;
+	public static final int Build = 3;
+	public static final int Compare = 4;
+	static final String[] PhaseNames = { "parse", "sort", "count", "build", "compare" };
+
+	// Name under which Register publishes the metrics
+	public static final String MBeanName = "boyang.PS3.Qn2:type=VectorMetrics";
+
+	// Thread MXBean used to measure allocations, or null if the JVM cannot,
+	// and the bytes that measuring is itself seen to allocate
+	static final com.sun.management.ThreadMXBean Threads = FindThreads();
+	static final long ProbeBytes = FindProbeBytes();
+
+	// Metrics recorded by VectorTextFile3
+	public static final VectorMetrics Global = new VectorMetrics();
+
+	// One similarity call in ComparisonSampleRate, chosen at random, is
+	// timed and has its allocations measured; the others are only counted.
+	public static final int ComparisonSampleRate = 64;
+
+	// Latency of each phase
+	LatencyHistogram[] m_Phases;
+
+	// Totals over every vector built.  Like the histograms, these are
+	// striped, since many threads update them at once.
+	LongAdder m_VectorsBuilt;
+	LongAdder m_BytesRead;
+	LongAdder m_Tokens;
+	LongAdder m_AllocatedBytes;
+
+	// Number of similarity calls, and the bytes allocated by those measured
+	// (the count of which is that of the Compare histogram)
+	LongAdder m_Comparisons;
+	LongAdder m_ComparisonAllocatedBytes;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates an empty set of metrics.
+	//-----------------------------------------------------------------------
+	public VectorMetrics()
+	{
+		m_Phases = new LatencyHistogram[PhaseNames.length];
+		for (int i=0; i<m_Phases.length; i++)
+		{
+			m_Phases[i] = new LatencyHistogram();
+		}
+		m_VectorsBuilt = new LongAdder();
+		m_BytesRead = new LongAdder();
+		m_Tokens = new LongAdder();
+		m_AllocatedBytes = new LongAdder();
+		m_Comparisons = new LongAdder();
+		m_ComparisonAllocatedBytes = new LongAdder();
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// RecordPhase: Records how long one phase took.
+	//
+	// Input: The phase (Parse, Sort, Count, Build or Compare) and its
+	// latency in nanoseconds.
+	//-----------------------------------------------------------------------
+	public void RecordPhase(int phase, long nanos)
+	{
+		m_Phases[phase].Record(nanos);
+	}
+
+	//-----------------------------------------------------------------------
+	// RecordBuild: Records the totals of one completed vector build.
+	//
+	// Input: The size of the file, the number of words in it, and the bytes
+	// allocated by the building thread (negative if unknown).
+	//-----------------------------------------------------------------------
+	public void RecordBuild(long bytes, long tokens, long allocatedBytes)
+	{
+		m_VectorsBuilt.increment();
+		m_BytesRead.add(bytes);
+		m_Tokens.add(tokens);
+		if (allocatedBytes > 0)
+		{
+			m_AllocatedBytes.add(allocatedBytes);
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// SampleComparison: Counts one similarity call, and tells whether the
+	// caller should measure it and pass the result to RecordComparison.
+	//
+	// Output: True for about one call in ComparisonSampleRate.
+	// Methodology: Similarity calls are the innermost loop of corpus-wide
+	// comparisons, so an unmeasured call costs only a striped increment
+	// and a thread-local random number: no clock reads and no shared
+	// cache line.
+	//-----------------------------------------------------------------------
+	public boolean SampleComparison()
+	{
+		m_Comparisons.increment();
+		return ThreadLocalRandom.current().nextInt(ComparisonSampleRate) == 0;
+	}
+
+	//-----------------------------------------------------------------------
+	// RecordComparison: Records a measured similarity call.
+	//
+	// Input: How long the call took, and the difference of
+	// ThreadAllocatedBytes over it (negative if unknown), from which the
+	// probe's own ProbeBytes are taken off.
+	//-----------------------------------------------------------------------
+	public void RecordComparison(long nanos, long allocatedBytes)
+	{
+		m_Phases[Compare].Record(nanos);
+		if (allocatedBytes > ProbeBytes)
+		{
+			m_ComparisonAllocatedBytes.add(allocatedBytes - ProbeBytes);
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// getPhase: Returns the latency histogram of a phase.
+	//-----------------------------------------------------------------------
+	public LatencyHistogram getPhase(int phase)
+	{
+		return m_Phases[phase];
+	}
+
+	//-----------------------------------------------------------------------
+	// getVectorsBuilt, getComparisons, getBytesRead, getTokens and 
+	// getAllocatedBytes: Return the totals recorded so far.
+	//-----------------------------------------------------------------------
+	public long getVectorsBuilt()
+	{
+		return m_VectorsBuilt.sum();
+	}
+
+	public long getComparisons()
+	{
+		return m_Comparisons.sum();
+	}
+
+	public long getBytesRead()
+	{
+		return m_BytesRead.sum();
+	}
+
+	public long getTokens()
+	{
+		return m_Tokens.sum();
+	}
+
+	public long getAllocatedBytes()
+	{
+		return m_AllocatedBytes.sum();
+	}
+
+	//-----------------------------------------------------------------------
+	// getComparisonAllocatedBytes: Returns the mean number of bytes
+	// allocated by a measured similarity call, or 0 if none was measured.
+	//-----------------------------------------------------------------------
+	public long getComparisonAllocatedBytes()
+	{
+		long sampled = m_Phases[Compare].getCount();
+		return (sampled == 0) ? 0 : m_ComparisonAllocatedBytes.sum() / sampled;
+	}
+
+	//-----------------------------------------------------------------------
+	// getSnapshot: Returns every metric as a JSON object.
+	//
+	// Output: A JSON object with the totals, and for each phase its count,
+	// total, mean, 50th/99th percentile and maximum latency in nanoseconds.
+	// The compare phase covers only the sampled calls (see
+	// SampleComparison); "comparisons" counts them all.
+	//-----------------------------------------------------------------------
+	public String getSnapshot()
+	{
+		StringBuilder json = new StringBuilder();
+		json.append("{\"vectorsBuilt\":").append(getVectorsBuilt());
+		json.append(",\"comparisons\":").append(getComparisons());
+		json.append(",\"bytesRead\":").append(getBytesRead());
+		json.append(",\"tokens\":").append(getTokens());
+		json.append(",\"allocatedBytes\":").append(getAllocatedBytes());
+		json.append(",\"comparisonAllocatedBytes\":").append(getComparisonAllocatedBytes());
+		json.append(",\"phases\":{");
+		for (int i=0; i<m_Phases.length; i++)
+		{
+			LatencyHistogram h = m_Phases[i];
+			long count = h.getCount();
+			if (i > 0)
+			{
+				json.append(',');
+			}
+			json.append('"').append(PhaseNames[i]).append("\":{");
+			json.append("\"count\":").append(count);
+			json.append(",\"totalNanos\":").append(h.getTotalNanos());
+			json.append(",\"meanNanos\":").append((count == 0) ? 0 : h.getTotalNanos() / count);
+			json.append(",\"p50Nanos\":").append(h.Percentile(50));
+			json.append(",\"p99Nanos\":").append(h.Percentile(99));
+			json.append(",\"maxNanos\":").append(h.getMaxNanos());
+			json.append('}');
+		}
+		json.append("}}");
+		return json.toString();
+	}
+
+	//-----------------------------------------------------------------------
+	// Register: Publishes the metrics on the platform MBean server under
+	// MBeanName.  Registering twice has no further effect.
+	//-----------------------------------------------------------------------
+	public synchronized void Register() throws Exception
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(MBeanName);
+		if (!server.isRegistered(name))
+		{
+			server.registerMBean(this, name);
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// reset: Clears every metric.
+	//-----------------------------------------------------------------------
+	public void reset()
+	{
+		for (LatencyHistogram h : m_Phases)
+		{
+			h.reset();
+		}
+		m_VectorsBuilt.reset();
+		m_BytesRead.reset();
+		m_Tokens.reset();
+		m_AllocatedBytes.reset();
+		m_Comparisons.reset();
+		m_ComparisonAllocatedBytes.reset();
+	}
+
+	/*****************************
+	 * Static Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// ThreadAllocatedBytes: Returns the number of bytes allocated so far by
+	// the current thread, or -1 if the JVM does not support measuring it.
+	// The difference between two calls includes ProbeBytes of the call's
+	// own allocation.
+	//-----------------------------------------------------------------------
+	public static long ThreadAllocatedBytes()
+	{
+		if (Threads == null)
+		{
+			return -1;
+		}
+		return Threads.getCurrentThreadAllocatedBytes();
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// FindThreads: Returns the platform's thread MXBean if it can measure
+	// allocations, or null.
+	//-----------------------------------------------------------------------
+	private static com.sun.management.ThreadMXBean FindThreads()
+	{
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean)
+		{
+			return (com.sun.management.ThreadMXBean)threads;
+		}
+		return null;
+	}
+
+	//-----------------------------------------------------------------------
+	// FindProbeBytes: Returns the bytes that a call to ThreadAllocatedBytes
+	// itself is seen to allocate, the least over a few tries.
+	//-----------------------------------------------------------------------
+	private static long FindProbeBytes()
+	{
+		long least = Long.MAX_VALUE;
+		for (int i=0; i<8; i++)
+		{
+			long before = ThreadAllocatedBytes();
+			least = Math.min(least, ThreadAllocatedBytes() - before);
+		}
+		return Math.max(0, least);
+	}
+}
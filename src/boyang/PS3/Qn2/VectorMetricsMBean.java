@@ -0,0 +1,20 @@
+/****************************************************************************
+ Interface: VectorMetricsMBean
+ Purpose: The JMX management interface of VectorMetrics.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+// Interface declaration:
+public interface VectorMetricsMBean
+{
+	long getVectorsBuilt();
+	long getComparisons();
+	long getBytesRead();
+	long getTokens();
+	long getAllocatedBytes();
+	long getComparisonAllocatedBytes();
+	String getSnapshot();
+	void reset();
+}
@@ -0,0 +1,500 @@
+/****************************************************************************
+ Class: VectorStore
+ Purpose: Keeps built term vectors in a compact binary file, so that a
+ corpus can be vectorized once and loaded again without reading, sorting
+ or counting its texts.  The file is memory-mapped, and each vector is
+ read straight into the int arrays of a TermVector.
+
+ Constructor: VectorStore(String storeName, TermDictionary dictionary)
+ Behavior: Opens and maps an existing store, translating its term ids
+ into ids of the given dictionary.
+
+ Public Class Methods:
+ 	int size() : Returns the number of vectors in the store.
+ 	String getName(int i) : Returns the source file name of vector i.
+ 	long getChecksum(int i) : Returns the CRC32 of vector i's source file.
+ 	int IndexOf(String name) : Returns the index of a source file, or -1.
+ 	TermVector Get(int i) : Loads vector i.
+ 	VectorTextFile3 GetFile(int i) : Loads vector i as a VectorTextFile3.
+ 	boolean IsCurrent(int i) : Returns whether vector i's source file is
+ 		unchanged since the vector was stored.
+ 	void close() : Unmaps and closes the store.
+
+ Static Methods:
+ 	void Write(String storeName, String[] names, TermVector[] vectors) :
+ 		Writes vectors, with the checksums of their source files.
+ 	void Write(String storeName, String[] names, VectorTextFile3[] files) :
+ 		As above, for the vectors of VectorTextFile3 objects.
+ 	long Checksum(String fileName) : Returns the CRC32 of a file.
+
+ File format (all values big-endian):
+ 	Header: int Magic, int Version, int TermCount, int VectorCount,
+ 		long DictionaryOffset, long IndexOffset.
+ 	Vectors, from offset HeaderSize: long Checksum, long SourceSize,
+ 		long SquaredNorm, int Length, int 0, then Length term ids in
+ 		increasing order, then Length counts.
+ 	Dictionary: TermCount terms, each an int byte count and UTF-8 bytes.
+ 	Index: VectorCount entries, each an int byte count and the UTF-8
+ 		bytes of the source name, then the long offset of the vector.
+ Term ids in the file are local to it: local id i is term i of the
+ file's dictionary, and local ids follow the order of the ids they had
+ when written.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+// Class declaration:
+public class VectorStore
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// First four bytes of a store ("DVST"), and the format version
+	public static final int Magic = 0x44565354;
+	public static final int Version = 1;
+
+	// Size of the file header, and of the header of each vector
+	static final int HeaderSize = 32;
+	static final int VectorHeaderSize = 32;
+
+	// Largest region mapped at once.  Vectors never straddle two regions.
+	static final long MaxRegionSize = 1L << 30;
+
+	// Dictionary that loaded vectors are built against, and the id in it
+	// of each local term id
+	TermDictionary m_Dictionary;
+	int[] m_IdMap;
+
+	// Does m_IdMap preserve the order of ids?  If so, loaded vectors are
+	// still sorted and need no sorting.
+	boolean m_Monotone;
+
+	// Source name and offset of each vector
+	String[] m_Names;
+	long[] m_Offsets;
+	HashMap<String, Integer> m_Indices;
+
+	// Mapped regions of the file, where each region begins, and the region
+	// holding each vector
+	RandomAccessFile m_File;
+	MappedByteBuffer[] m_Regions;
+	long[] m_RegionStarts;
+	int[] m_RegionOf;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Opens a store written by Write.
+	//
+	// Input: The name of the store, and the dictionary to load vectors into.
+	// Properties: On completion, every term of the store has an id in the
+	// dictionary, the index of vectors is in memory, and the vectors are
+	// mapped but not yet read.
+	// Methodology: The vectors are mapped in regions of up to MaxRegionSize
+	// bytes, each made of whole vectors, so that stores larger than one
+	// MappedByteBuffer can hold are still mapped.
+	//-----------------------------------------------------------------------
+	public VectorStore(String storeName, TermDictionary dictionary) throws IOException
+	{
+		m_Dictionary = dictionary;
+		m_File = new RandomAccessFile(storeName, "r");
+		try{
+			FileChannel channel = m_File.getChannel();
+			long fileSize = channel.size();
+
+			if (fileSize < HeaderSize)
+			{
+				throw new IOException(storeName + " is not a vector store.");
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HeaderSize);
+			if (header.getInt() != Magic)
+			{
+				throw new IOException(storeName + " is not a vector store.");
+			}
+			if (header.getInt() != Version)
+			{
+				throw new IOException(storeName + " has an unsupported version.");
+			}
+			int termCount = header.getInt();
+			int vectorCount = header.getInt();
+			long dictionaryOffset = header.getLong();
+			long indexOffset = header.getLong();
+
+			// Read the dictionary and the index, translating local term ids.
+			ByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, dictionaryOffset, fileSize - dictionaryOffset);
+			m_IdMap = new int[termCount];
+			m_Monotone = true;
+			for (int t=0; t<termCount; t++)
+			{
+				m_IdMap[t] = dictionary.getId(ReadString(tail));
+				if ((t > 0) && (m_IdMap[t] < m_IdMap[t-1]))
+				{
+					m_Monotone = false;
+				}
+			}
+			tail.position((int)(indexOffset - dictionaryOffset));
+			m_Names = new String[vectorCount];
+			m_Offsets = new long[vectorCount];
+			m_Indices = new HashMap<String, Integer>();
+			for (int i=0; i<vectorCount; i++)
+			{
+				m_Names[i] = ReadString(tail);
+				m_Offsets[i] = tail.getLong();
+				m_Indices.put(m_Names[i], i);
+			}
+
+			// Group the vectors, which are stored in order, into regions.
+			m_RegionOf = new int[vectorCount];
+			long[] regionEnds = new long[vectorCount + 1];
+			m_RegionStarts = new long[vectorCount + 1];
+			int regionCount = 0;
+			for (int i=0; i<vectorCount; i++)
+			{
+				long end = (i + 1 < vectorCount) ? m_Offsets[i+1] : dictionaryOffset;
+				if ((regionCount == 0) || (end - m_RegionStarts[regionCount-1] > MaxRegionSize))
+				{
+					m_RegionStarts[regionCount] = m_Offsets[i];
+					regionCount++;
+				}
+				regionEnds[regionCount-1] = end;
+				m_RegionOf[i] = regionCount - 1;
+			}
+			m_Regions = new MappedByteBuffer[regionCount];
+			for (int r=0; r<regionCount; r++)
+			{
+				m_Regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, m_RegionStarts[r], regionEnds[r] - m_RegionStarts[r]);
+			}
+		}
+		catch (IOException e)
+		{
+			m_File.close();
+			throw e;
+		}
+		catch (RuntimeException e)
+		{
+			m_File.close();
+			throw new IOException(storeName + " is damaged.", e);
+		}
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// size: Returns the number of vectors in the store.
+	//-----------------------------------------------------------------------
+	public int size()
+	{
+		return m_Names.length;
+	}
+
+	//-----------------------------------------------------------------------
+	// getName: Returns the name of the source file of vector i.
+	//-----------------------------------------------------------------------
+	public String getName(int i)
+	{
+		return m_Names[i];
+	}
+
+	//-----------------------------------------------------------------------
+	// getChecksum: Returns the CRC32 of the source file of vector i, as it
+	// was when the vector was stored.
+	//-----------------------------------------------------------------------
+	public long getChecksum(int i)
+	{
+		return Record(i).getLong(0);
+	}
+
+	//-----------------------------------------------------------------------
+	// IndexOf: Returns the index of the vector of a source file, or -1 if
+	// the store has none.
+	//-----------------------------------------------------------------------
+	public int IndexOf(String name)
+	{
+		Integer index = m_Indices.get(name);
+		return (index == null) ? -1 : index;
+	}
+
+	//-----------------------------------------------------------------------
+	// Get: Loads a vector from the store.
+	//
+	// Input: The index of the vector.
+	// Output: The vector, built against the store's dictionary.
+	// Methodology: The ids and counts are copied from the mapped file with
+	// two bulk reads, and the ids translated.  When the translation keeps
+	// ids in order, which it does whenever the store was written against
+	// the same dictionary, the arrays are used as they are, with the stored
+	// squared norm; otherwise the vector is sorted again.
+	// Properties: Safe to call from several threads at once.
+	//-----------------------------------------------------------------------
+	public TermVector Get(int i)
+	{
+		ByteBuffer record = Record(i);
+		long squaredNorm = record.getLong(16);
+		int length = record.getInt(24);
+
+		record.position(VectorHeaderSize);
+		int[] termIds = new int[length];
+		int[] counts = new int[length];
+		record.asIntBuffer().get(termIds).get(counts);
+
+		for (int j=0; j<length; j++)
+		{
+			termIds[j] = m_IdMap[termIds[j]];
+		}
+		if (!m_Monotone)
+		{
+			return new TermVector(m_Dictionary, termIds, counts, length);
+		}
+		return TermVector.WithSquaredNorm(m_Dictionary, termIds, counts, squaredNorm);
+	}
+
+	//-----------------------------------------------------------------------
+	// GetFile: Loads a vector from the store as a VectorTextFile3.
+	//-----------------------------------------------------------------------
+	public VectorTextFile3 GetFile(int i)
+	{
+		return new VectorTextFile3(Get(i));
+	}
+
+	//-----------------------------------------------------------------------
+	// IsCurrent: Returns whether the source file of vector i is unchanged
+	// since the vector was stored, i.e., has the same size and checksum.
+	// Checksumming reads the file, but is much cheaper than vectorizing it.
+	//-----------------------------------------------------------------------
+	public boolean IsCurrent(int i)
+	{
+		ByteBuffer record = Record(i);
+		try{
+			FileTextReader reader = new FileTextReader(m_Names[i]);
+			long size = reader.size();
+			reader.close();
+			return (size == record.getLong(8)) && (Checksum(m_Names[i]) == record.getLong(0));
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// close: Closes the store.  The mapped regions are released when they
+	// are garbage collected; vectors loaded already remain valid.
+	//-----------------------------------------------------------------------
+	public void close() throws IOException
+	{
+		m_Regions = null;
+		m_File.close();
+	}
+
+	/*****************************
+	 * Static Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Write: Writes vectors to a new store.
+	//
+	// Input: The name of the store, the name of each vector's source file,
+	// and the vectors, which must all be built against one dictionary.
+	// Output: None
+	// Properties: The checksum and size of each source file are recorded,
+	// or 0 and -1 if it cannot be read.  Only the terms used by the vectors
+	// are stored.
+	// Methodology: The terms used are numbered in order of their ids, so a
+	// vector's local ids are in the same order as its ids and need no
+	// sorting.  Every offset is computed before anything is written, so
+	// the file is written in one sequential pass.
+	//-----------------------------------------------------------------------
+	public static void Write(String storeName, String[] names, TermVector[] vectors) throws IOException
+	{
+		if (names.length != vectors.length)
+		{
+			throw new IllegalArgumentException("Every vector needs a name.");
+		}
+		TermDictionary dictionary = (vectors.length == 0) ? TermDictionary.Global : vectors[0].getDictionary();
+
+		// Number the terms used, in order of their ids.
+		int[] localIds = new int[dictionary.size()];
+		for (TermVector vector : vectors)
+		{
+			if (vector.getDictionary() != dictionary)
+			{
+				throw new IllegalArgumentException("Vectors were built against different dictionaries.");
+			}
+			for (int j=0; j<vector.length(); j++)
+			{
+				localIds[vector.getTermId(j)] = 1;
+			}
+		}
+		int termCount = 0;
+		for (int id=0; id<localIds.length; id++)
+		{
+			if (localIds[id] != 0)
+			{
+				localIds[id] = ++termCount;
+			}
+		}
+
+		// Encode the terms and names, and lay out the file.
+		byte[][] terms = new byte[termCount][];
+		for (int id=0; id<localIds.length; id++)
+		{
+			if (localIds[id] != 0)
+			{
+				localIds[id]--;
+				terms[localIds[id]] = dictionary.getTerm(id).getBytes(StandardCharsets.UTF_8);
+			}
+			else
+			{
+				localIds[id] = -1;
+			}
+		}
+		long[] offsets = new long[vectors.length];
+		long offset = HeaderSize;
+		for (int i=0; i<vectors.length; i++)
+		{
+			offsets[i] = offset;
+			offset += VectorHeaderSize + 8L * vectors[i].length();
+		}
+		long dictionaryOffset = offset;
+		for (byte[] term : terms)
+		{
+			offset += 4 + term.length;
+		}
+		long indexOffset = offset;
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(storeName), 1 << 20));
+		try{
+			out.writeInt(Magic);
+			out.writeInt(Version);
+			out.writeInt(termCount);
+			out.writeInt(vectors.length);
+			out.writeLong(dictionaryOffset);
+			out.writeLong(indexOffset);
+
+			for (int i=0; i<vectors.length; i++)
+			{
+				TermVector vector = vectors[i];
+				long checksum = 0;
+				long size = -1;
+				try{
+					checksum = Checksum(names[i]);
+					FileTextReader reader = new FileTextReader(names[i]);
+					size = reader.size();
+					reader.close();
+				}
+				catch (IOException e)
+				{
+					// Leave the vector marked as having no readable source.
+				}
+				out.writeLong(checksum);
+				out.writeLong(size);
+				out.writeLong(vector.getSquaredNorm());
+				out.writeInt(vector.length());
+				out.writeInt(0);
+				for (int j=0; j<vector.length(); j++)
+				{
+					out.writeInt(localIds[vector.getTermId(j)]);
+				}
+				for (int j=0; j<vector.length(); j++)
+				{
+					out.writeInt(vector.getCount(j));
+				}
+			}
+
+			for (byte[] term : terms)
+			{
+				out.writeInt(term.length);
+				out.write(term);
+			}
+
+			for (int i=0; i<vectors.length; i++)
+			{
+				byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+				out.writeInt(name.length);
+				out.write(name);
+				out.writeLong(offsets[i]);
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// Write: Writes the vectors of VectorTextFile3 objects to a new store.
+	// A file whose vector failed to build is stored with no words.
+	//-----------------------------------------------------------------------
+	public static void Write(String storeName, String[] names, VectorTextFile3[] files) throws IOException
+	{
+		TermVector[] vectors = new TermVector[files.length];
+		for (int i=0; i<files.length; i++)
+		{
+			vectors[i] = files[i].m_CountedWords;
+			if (vectors[i] == null)
+			{
+				vectors[i] = new TermVector(TermDictionary.Global, new int[0], new int[0], 0);
+			}
+		}
+		Write(storeName, names, vectors);
+	}
+
+	//-----------------------------------------------------------------------
+	// Checksum: Returns the CRC32 of the contents of a file.
+	//-----------------------------------------------------------------------
+	public static long Checksum(String fileName) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		FileTextReader reader = new FileTextReader(fileName);
+		try{
+			ByteBuffer block;
+			while ((block = reader.nextBlock()) != null)
+			{
+				crc.update(block);
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return crc.getValue();
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Record: Returns a view of vector i's record, starting at position 0.
+	//-----------------------------------------------------------------------
+	private ByteBuffer Record(int i)
+	{
+		int region = m_RegionOf[i];
+		ByteBuffer record = m_Regions[region].duplicate();
+		record.position((int)(m_Offsets[i] - m_RegionStarts[region]));
+		return record.slice();
+	}
+
+	//-----------------------------------------------------------------------
+	// ReadString: Reads a byte count and that many UTF-8 bytes.
+	//-----------------------------------------------------------------------
+	private static String ReadString(ByteBuffer buffer)
+	{
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -7,10 +7,10 @@
  Behavior: Reads the specified text file and parses it appropriately.
  
  Public Class Methods:
- 	int Norm() : Returns the norm of the vector.
+ 	double Norm() : Returns the norm of the vector.
  	
  Static Methods:
- 	double DotProduct(VectorTextFile A, VectorTextFile B) : 
+ 	long DotProduct(VectorTextFile A, VectorTextFile B) : 
  		Returns the dot product of two vectors.
  	double Angle(VectorTextFile A, VectorTextFile B) : 
  		Returns the angle between two vectors. 
@@ -40,6 +40,9 @@ public class VectorTextFile {
 	// Array of word/count pairs
 	WordCountPair[] m_CountedWords;
 	
+	// The word/count pairs by term id in TermDictionary.Global
+	TermVector m_TermVector;
+	
 	// Number of word/count pairs
 	int m_WordPairCount;
 	
@@ -122,12 +125,17 @@ public class VectorTextFile {
 	// word/count pairs, and m_WordPairCount contains the number of word/count 
 	// pairs.
 	// Methodology: The norm of a vector X is defined to be the square-root of 
-	// DotProduct(X,X).
+	// DotProduct(X,X).  DotProduct(X,X) is computed once, when the vector is
+	// built, and cached in the TermVector.
 	//-----------------------------------------------------------------------
 	public double Norm()
 	{
-		int dot = VectorTextFile.DotProduct(this, this);
-		return Math.sqrt(dot);
+		// A vector whose file failed to load has no words.
+		if (m_TermVector == null)
+		{
+			return 0;
+		}
+		return m_TermVector.Norm();
 	}
 	
 	/*****************************
@@ -138,73 +146,24 @@ public class VectorTextFile {
 	// DotProduct: Calculates the dot-product of two TextFile vectors.
 	//			
 	// Input: Two vectors of type VectorTextFile
-	// Output: An integer representing their dot-product
-	// Assumptions: For each vector, m_CountedWords contains a sorted list 
-	// of distinct word/count pairs, and m_WordPairCount contains the number
-	// of word/count pairs.
+	// Output: A long integer representing their dot-product
+	// Assumptions: For each vector, m_TermVector holds the distinct 
+	// word/count pairs by term id.
 	// Methodology: The dot-product is calculated by summing the product of 
 	// the individual vector components. That is, if D(w,X) is the number of 
 	// times word w appears in vector X, then the dot-product of A and B is 
 	// defined as: 
 	//					Sum_{every w in A and B) [D(w,A)*D(w,B)]
+	// See TermVector.DotProduct, which compares words by their integer ids.
 	//-----------------------------------------------------------------------
-	static int DotProduct(VectorTextFile A, VectorTextFile B)
+	static long DotProduct(VectorTextFile A, VectorTextFile B)
 	{
-		// Initialize local variables:
-		
-		// The sum is initially zero
-		int sum = 0;
-		
-		// Alength is the number of word/count pairs in A 
-		int Alength = A.m_WordPairCount;
-		// We begin with word/count pair zero
-		int Aindex = 0;
-		
-		// Blength is the number of word/count pairs in B
-		int Blength = B.m_WordPairCount;
-		// We begin with word/count pair zero
-		int Bindex = 0;
-		
-		// We iterate through all the word/count pairs, looking for words that 
-		// appear in both A and B.  We continue until we run out of words in 
-		// either A or B.
-		while ((Aindex < Alength) && (Bindex < Blength))
+		// A vector whose file failed to load has no words.
+		if ((A.m_TermVector == null) || (B.m_TermVector == null))
 		{
-			// First, get the word associated with Aindex in A
-			WordCountPair Awordpair = A.m_CountedWords[Aindex];
-			String Aword = Awordpair.getWord();
-			
-			// Next, get the word associated with Bindex in B
-			WordCountPair Bwordpair = B.m_CountedWords[Bindex];
-			String Bword = Bwordpair.getWord();
-			
-			// If Aword==Bword, then we have found a word in both vector A and B
-			if (Aword.equals(Bword))
-			{
-				// Add the product of the counts to the sum.
-				sum += (Awordpair.getCount()*Bwordpair.getCount());
-				
-				// Next, increment both Aindex and Bincex to consider the next
-				// word in both vectors.
-				Aindex++;
-				Bindex++;
-			}
-			else if (Aword.compareTo(Bword) > 0)
-			{
-				// Otherwise, if (Aword > Bword) in alphabetic order, we
-				// increment Bindex, going to the next WordCountPair in B.
-				Bindex++;
-			}
-			else
-			{
-				// Otherwise, (Bword > Aword) in alphabetic order.  We
-				// increment Aindex, going to the next WordCountPair in A.
-				Aindex++;
-			}
+			return 0;
 		}
-		
-		// Finally, we return the dot-product.
-		return sum;
+		return TermVector.DotProduct(A.m_TermVector, B.m_TermVector);
 	}
 	
 	////////////////////////////////////////////////////////////////////////
@@ -221,14 +180,15 @@ public class VectorTextFile {
 	static double Angle(VectorTextFile A, VectorTextFile B)
 	{
 		// First calculate the dot product of the vectors A and B
-		int dot = VectorTextFile.DotProduct(A, B);
+		long dot = VectorTextFile.DotProduct(A, B);
 		
-		// Second, calculate the norm of the two vectors
+		// Second, get the (cached) norm of the two vectors
 		double Anorm = A.Norm();
 		double Bnorm = B.Norm();
 		
 		// Third, calculate (AB)/(|A|*|B|)
-		double result = dot/(Anorm*Bnorm);
+		// Rounding can push this just past 1 for identical vectors, so clamp it.
+		double result = Math.min(1.0, dot/(Anorm*Bnorm));
 		
 		// Lastly, take the arccos of the result
 		double theta = Math.acos(result);
@@ -252,7 +212,7 @@ public class VectorTextFile {
 	// in the list as it does in the original file.  All letters in all words 
 	// are lower-case, and all punctuation/non-letters are removed.
 	//-----------------------------------------------------------------------
-	private void ParseFile(String fileName) throws IOException
+	void ParseFile(String fileName) throws IOException
 	{
 		// First, read the file into a single long string.
 		String strTextFile = ReadFile(fileName);
@@ -355,10 +315,17 @@ public class VectorTextFile {
 		String word = "";
 		
 		// Initialize class variables:
-		// Note: the length of the string is an overestimate of the number of words in the String.
-		// As a result, we allocate too much space, wasting memory.
-		// It would be better to allocate space more efficiently.
-		m_WordList = new String[iStringSize];
+		// First count the words, i.e., the non-space characters that begin 
+		// a word, so that m_WordList has exactly one slot per word.
+		int iMaxWords = 0;
+		for (int i=0; i<iStringSize; i++)
+		{
+			if ((strTextFile.charAt(i) != ' ') && ((i == 0) || (strTextFile.charAt(i-1) == ' ')))
+			{
+				iMaxWords++;
+			}
+		}
+		m_WordList = new String[iMaxWords];
 		
 		// Iterate through the string, examining every character.
 		// Accumulate characters in words, detecting word breaks.
@@ -414,7 +381,7 @@ public class VectorTextFile {
 	// alphabetically, and the flag m_Sorted is set to true.
 	// Methodology: The sorting is accomplished via `insertion sort.'  	
 	//-----------------------------------------------------------------------
-	private void InsertionSortWords() throws Exception
+	void InsertionSortWords() throws Exception
 	{
 		// Initialize local variables:
 		
@@ -472,9 +439,10 @@ public class VectorTextFile {
 	// m_WordList.  The count associated with each word is the number of
 	// times that word appears in m_WordList.  The integer m_WordPairCount
 	// contains the number of distinct words in m_WordList, i.e., the number of 
-	// entries in m_CountedWords.
+	// entries in m_CountedWords, and m_TermVector holds the same pairs by 
+	// term id.
 	//-----------------------------------------------------------------------
-	private void CountWordFrequencies() throws Exception
+	void CountWordFrequencies() throws Exception
 	{
 		// Check for errors:		
 		if ((m_WordList==null) || (m_FileWordCount<1) || (m_Sorted == false))
@@ -483,10 +451,17 @@ public class VectorTextFile {
 		}
 		
 		// Initialize the m_CountedWords array.
-		// We use m_FileWordCount as a safe estimate of the number of distinct 
-		// words in m_WordList.  Notice that this is an inefficient use of space,
-		// as m_CountedWords will likely be much smaller than m_WordList.
-		m_CountedWords = new WordCountPair[m_FileWordCount];
+		// The list is sorted, so a pair is stored each time the word changes;
+		// count those first, so that m_CountedWords holds exactly the pairs.
+		int iMaxPairs = 0;
+		for (int i=1; i<m_FileWordCount; i++)
+		{
+			if (!m_WordList[i].equals(m_WordList[i-1]))
+			{
+				iMaxPairs++;
+			}
+		}
+		m_CountedWords = new WordCountPair[iMaxPairs];
 		
 		// Initialize the number of count/value pairs to zero.
 		int iNumPairs = 0;
@@ -520,7 +495,18 @@ public class VectorTextFile {
 			}
 		}
 		// Save the number of word/count pairs in m_WordPairCount
-		m_WordPairCount = iNumPairs;			
+		m_WordPairCount = iNumPairs;
+		
+		// Finally, look up the id of each distinct word, so that vectors
+		// can be compared by term id.
+		int[] termIds = new int[iNumPairs];
+		int[] counts = new int[iNumPairs];
+		for (int i=0; i<iNumPairs; i++)
+		{
+			termIds[i] = TermDictionary.Global.getId(m_CountedWords[i].getWord());
+			counts[i] = m_CountedWords[i].getCount();
+		}
+		m_TermVector = new TermVector(TermDictionary.Global, termIds, counts, iNumPairs);
 	}
 	
 	//-----------------------------------------------------------------------
@@ -1,16 +1,38 @@
 /****************************************************************************
  Class: VectorTextFile3
- Purpose: Represents a text file as a vector, i.e., as a sorted array of 
- word/count pairs that appear in the text file.
+ Purpose: Represents a text file as a vector, i.e., as a TermVector of 
+ the words (by term id) and counts that appear in the text file.
  
  Constructor: VectorTextFile3(String fileName)
  Behavior: Reads the specified text file and parses it appropriately.
  
+ Constructor: VectorTextFile3(String fileName, int mode)
+ Behavior: As above, counting the words with the given counting mode
+ (SortCounting, HashCounting, ParallelSortCounting, ChunkedCounting or
+ ExternalSortCounting).
+ 
+ Constructor: VectorTextFile3(String fileName, int mode, VocabularyFilter filter)
+ Behavior: As above, keeping only the words the filter keeps.
+ 
+ Constructor: VectorTextFile3(String fileName, int mode, VocabularyFilter filter,
+ 	int parallelThreshold)
+ Behavior: As above, with ParallelSortCounting forking sorts of ranges of
+ at least parallelThreshold words.
+ 
+ Constructor: VectorTextFile3(TermVector vector)
+ Behavior: Wraps a vector that was built earlier, without reading a file.
+ 
  Public Class Methods:
- 	int Norm() : Returns the norm of the vector.
+ 	double Norm() : Returns the norm of the vector.
+ 	VectorTextFile3 Prune() : Returns the vector pruned by its filter's
+ 		document-frequency range and vocabulary cap.
+ 	VectorTextFile3 Update(String appended, String removed) : Returns the
+ 		vector with the words of two texts added and removed.
+ 	VectorTextFile3 Append(String fileName, long begin, long end) :
+ 		Returns the vector with the words of part of a file added.
  	
  Static Methods:
- 	double DotProduct(VectorTextFile3 A, VectorTextFile3 B) : 
+ 	long DotProduct(VectorTextFile3 A, VectorTextFile3 B) : 
  		Returns the dot product of two vectors.
  	double Angle(VectorTextFile3 A, VectorTextFile3 B) : 
  		Returns the angle between two vectors. 
@@ -20,8 +42,21 @@
 package boyang.PS3.Qn2; 
 
 // This class uses the following two packages (associated with reading files):
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // Class declaration:
 public class VectorTextFile3 {
@@ -31,6 +66,32 @@ public class VectorTextFile3 {
 	 *****************************/
 	public static final int MinMergeSize = 7;
 	
+	// Counting modes: sort every word and count runs of equal words, or
+	// count words in a hash table and sort only the distinct words.
+	public static final int SortCounting = 0;
+	public static final int HashCounting = 1;
+	
+	// Counting mode that sorts every word with a parallel merge sort, and
+	// the default number of words below which that sort stops splitting.
+	public static final int ParallelSortCounting = 2;
+	public static final int DefaultParallelThreshold = 8192;
+	
+	// Counting mode that splits the file into chunks of about 
+	// DefaultChunkSize bytes and counts them in parallel, with one hash
+	// table per worker thread.
+	public static final int ChunkedCounting = 3;
+	public static final long DefaultChunkSize = 64L << 20;
+	
+	// Counting mode that sorts runs of words within a memory budget of
+	// DefaultExternalMemoryBudget bytes, spills them to temporary files and
+	// merges them, for files too large to sort in memory.
+	public static final int ExternalSortCounting = 4;
+	public static final long DefaultExternalMemoryBudget = 64L << 20;
+	
+	// Typical number of bytes per word of English text, including its
+	// separator, used to size the word list before reading
+	static final int WordSizeEstimate = 6;
+	
 	StopWatch sw = null;
 	// Array of words in the file
 	String[]  m_WordList;
@@ -38,14 +99,20 @@ public class VectorTextFile3 {
 	// Number of words in the file
 	int m_FileWordCount;
 
-	// Array of word/count pairs
-	WordCountPair[] m_CountedWords;
+	// Vector of term id/count pairs
+	TermVector m_CountedWords;
 	
 	// Number of word/count pairs
 	int m_WordPairCount;
 	
 	// Has the word list been sorted?
 	boolean m_Sorted;
+	
+	// Are equal words in the word list the same String instance?
+	boolean m_Interned;
+	
+	// Filter of the words kept, or null for every word
+	VocabularyFilter m_Filter;
 		
 	//-----------------------------------------------------------------------
 	// Constructor: Reads and parses the specified file
@@ -54,7 +121,7 @@ public class VectorTextFile3 {
 	// Assumptions: fileName is a text file that exists on disk.
 	// Properties: On completion, m_WordList contains a sorted array of all the
 	// words in the text file, m_FileWordCount is the number of words in the
-	// text file, m_CountedWords contains a sorted array of word/count pairs
+	// text file, m_CountedWords contains a TermVector of term id/count pairs
 	// with one entry for every distinct word in the text file, m_WordPairCount
 	// is the number of word/count pairs, and the flag m_Sorted is true.
 	// Characters in the file are treated in the following manner:
@@ -64,48 +131,174 @@ public class VectorTextFile3 {
 	// (d) All (other) non-letters and non-spaces are removed.
 	//-----------------------------------------------------------------------		
 	public VectorTextFile3(String fileName) 
-	{		
+	{
+		this(fileName, SortCounting);
+	}
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Reads and parses the specified file, using the given
+	// counting mode.
+	//
+	// Input: String containing a filename, and the counting mode.
+	// Assumptions: fileName is a text file that exists on disk.
+	// Properties: With SortCounting, as for VectorTextFile3(fileName).  With
+	// ParallelSortCounting, the same, but the words are sorted by 
+	// ParallelMergeSortWords.  With HashCounting, the words are counted as
+	// they are read and never stored one by one: m_WordList is null and
+	// m_Sorted is false, while m_FileWordCount, m_CountedWords and 
+	// m_WordPairCount are as above.  ChunkedCounting is as HashCounting, but
+	// counts chunks of the file in parallel, and ExternalSortCounting is as
+	// HashCounting, but counts by sorting runs of words on disk (see 
+	// ExternalWordSorter).  The time taken by each phase, and the
+	// bytes, words and memory used, are recorded in VectorMetrics.Global.
+	//-----------------------------------------------------------------------		
+	public VectorTextFile3(String fileName, int mode) 
+	{
+		this(fileName, mode, null);
+	}
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Reads and parses the specified file, using the given
+	// counting mode, keeping only the words the filter keeps.
+	//
+	// Input: String containing a filename, the counting mode, and the
+	// filter, or null to keep every word.
+	// Properties: As for VectorTextFile3(fileName, mode), but stopwords are
+	// dropped as the file is tokenized, so they are never stored, sorted
+	// or counted, and m_FileWordCount and m_WordList include only the
+	// other words.  Once counted, m_CountedWords is cut to the filter's
+	// vocabulary cap (see VocabularyFilter.Apply), unless the filter
+	// prunes by document frequency: then the vector is left whole, to be
+	// added to the corpus statistics and then pruned by Prune, since
+	// pruning it first would drop the terms its own document should count
+	// towards.  A file none of whose words is kept fails to build, like an
+	// empty file.
+	//-----------------------------------------------------------------------
+	public VectorTextFile3(String fileName, int mode, VocabularyFilter filter) 
+	{
+		this(fileName, mode, filter, DefaultParallelThreshold);
+	}
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Reads and parses the specified file, as above, with the
+	// given threshold for ParallelSortCounting.
+	//
+	// Input: String containing a filename, the counting mode, the filter,
+	// or null to keep every word, and the number of words below which
+	// ParallelSortCounting sorts a range on one thread (see
+	// ParallelMergeSortWords).  The threshold is ignored by the other
+	// modes.
+	// Properties: As for VectorTextFile3(fileName, mode, filter).  A small
+	// threshold forks more tasks, which pays on many processors; a large
+	// one avoids the forking overhead on few.
+	//-----------------------------------------------------------------------
+	public VectorTextFile3(String fileName, int mode, VocabularyFilter filter, int parallelThreshold) 
+	{
+		if (parallelThreshold < 1)
+		{
+			throw new IllegalArgumentException("Parallel threshold must be positive: " + parallelThreshold);
+		}
+		
 		// Begin a block of code that handles exceptions (i.e., errors)
 		try{
 					
 			// First, initialize class variables
+			m_Filter = filter;
 			m_WordList = null;
 			m_CountedWords = null;
 			m_FileWordCount = 0;
 			m_WordPairCount = 0;
 			m_Sorted = false;
+			m_Interned = false;
 			sw = new StopWatch();
-			// Next, read in the file and parse it into words.
-			ParseFile(fileName);
+			StopWatch buildWatch = new StopWatch();
+			buildWatch.start();
+			long allocatedBefore = VectorMetrics.ThreadAllocatedBytes();
 			
-			// Check for errors:
-			if ((m_FileWordCount < 1) || (m_WordList == null))
+			if ((mode == HashCounting) || (mode == ChunkedCounting) || (mode == ExternalSortCounting))
 			{
-				throw new Exception("Reading the file failed.");
+				// Count the words straight from the file.  Reading and 
+				// counting are fused, so both are timed as counting.
+				sw.start();
+				if (mode == ChunkedCounting)
+				{
+					CountWordsInChunks(fileName, DefaultChunkSize);
+				}
+				else if (mode == ExternalSortCounting)
+				{
+					CountWordsByExternalSort(fileName, DefaultExternalMemoryBudget);
+				}
+				else
+				{
+					CountWordsByHashing(fileName);
+				}
+				sw.stop();
+				VectorMetrics.Global.RecordPhase(VectorMetrics.Count, sw.getNanos());
 			}
-			
-			// Next, sort the words.
-			sw.start();
-			MergeSortWords(0, m_FileWordCount-1);
-			sw.stop();
-			System.out.println("time taken:"+sw.getTime());
-			
-			m_Sorted = true;
-			// Check for errors:
-			/*if (m_Sorted == false)
+			else
 			{
-				throw new Exception("Sorting failed.");
+				// Next, read in the file and parse it into words.
+				sw.start();
+				ParseFile(fileName);
+				sw.stop();
+				VectorMetrics.Global.RecordPhase(VectorMetrics.Parse, sw.getNanos());
+				
+				// Check for errors:
+				if ((m_FileWordCount < 1) || (m_WordList == null))
+				{
+					throw new Exception("Reading the file failed.");
+				}
+				
+				// Next, sort the words.
+				sw.reset();
+				sw.start();
+				if (mode == ParallelSortCounting)
+				{
+					ParallelMergeSortWords(0, m_FileWordCount-1, parallelThreshold);
+				}
+				else
+				{
+					MergeSortWords(0, m_FileWordCount-1);
+				}
+				sw.stop();
+				VectorMetrics.Global.RecordPhase(VectorMetrics.Sort, sw.getNanos());
+				
+				m_Sorted = true;
+				// Check for errors:
+				/*if (m_Sorted == false)
+				{
+					throw new Exception("Sorting failed.");
+				}
+				VerifySort();*/
+				
+				// Finally, count the number of times each word appears in the file.
+				sw.reset();
+				sw.start();
+				CountWordFrequencies();
+				sw.stop();
+				VectorMetrics.Global.RecordPhase(VectorMetrics.Count, sw.getNanos());
 			}
-			VerifySort();*/
 			
-			// Finally, count the number of times each word appears in the file.
-			CountWordFrequencies();
+			// Prune the counted terms, unless that needs the statistics of a
+			// corpus this document is not yet part of.
+			if ((m_Filter != null) && (m_CountedWords != null) && !m_Filter.PrunesByDocumentFrequency())
+			{
+				m_CountedWords = m_Filter.Apply(m_CountedWords, true);
+				m_WordPairCount = m_CountedWords.length();
+			}
 			
 			// Check for errors:
 			if ((m_WordPairCount < 1) || (m_CountedWords == null))
 			{
 				throw new Exception("Counting the word frequencies failed.");
 			}
+			
+			// Record the build as a whole.
+			buildWatch.stop();
+			VectorMetrics.Global.RecordPhase(VectorMetrics.Build, buildWatch.getNanos());
+			long allocatedAfter = VectorMetrics.ThreadAllocatedBytes();
+			VectorMetrics.Global.RecordBuild(new File(fileName).length(), m_FileWordCount, 
+				(allocatedBefore < 0) ? -1 : allocatedAfter - allocatedBefore);
 		}
 		// Catch any exceptions (i.e., errors) and report problems.
 		catch(Exception e)
@@ -113,7 +306,32 @@ public class VectorTextFile3 {
 			
 			System.out.println("Error creating VectorTextFile."+e.getMessage());
 		}
-	}	
+	}
+
+	//-----------------------------------------------------------------------
+	// Constructor: Wraps a vector that was built earlier, e.g., one loaded
+	// from a VectorStore.
+	//
+	// Input: The TermVector of the file.
+	// Properties: On completion, m_CountedWords is the given vector,
+	// m_WordPairCount its length, and m_FileWordCount the sum of its
+	// counts.  m_WordList is null and m_Sorted is false, as with
+	// HashCounting.
+	//-----------------------------------------------------------------------
+	public VectorTextFile3(TermVector vector)
+	{
+		m_WordList = null;
+		m_CountedWords = vector;
+		m_WordPairCount = vector.length();
+		m_Sorted = false;
+
+		long words = 0;
+		for (int i=0; i<vector.length(); i++)
+		{
+			words += vector.getCount(i);
+		}
+		m_FileWordCount = (int)Math.min(words, Integer.MAX_VALUE);
+	}
 	
 	/*****************************
 	 * Public Class Methods     *
@@ -124,16 +342,91 @@ public class VectorTextFile3 {
 	//			
 	// Input: None.
 	// Output: The norm of the vector.
-	// Assumptions: m_CountedWords contains a sorted list of distinct 
-	// word/count pairs, and m_WordPairCount contains the number of word/count 
-	// pairs.
+	// Assumptions: m_CountedWords contains the vector of distinct 
+	// term id/count pairs.
 	// Methodology: The norm of a vector X is defined to be the square-root of 
-	// DotProduct(X,X).
+	// DotProduct(X,X).  DotProduct(X,X) is computed once, when the vector is
+	// built, and cached in the TermVector.
 	//-----------------------------------------------------------------------
 	public double Norm()
 	{
-		int dot = VectorTextFile3.DotProduct(this, this);
-		return Math.sqrt(dot);
+		// A vector whose file failed to load has no words.
+		if (m_CountedWords == null)
+		{
+			return 0;
+		}
+		return m_CountedWords.Norm();
+	}
+	
+	//-----------------------------------------------------------------------
+	// Prune: Returns the vector pruned by its filter, once the corpus
+	// statistics the filter reads have counted it.
+	//
+	// Input: None
+	// Output: A new VectorTextFile3 holding the terms of this one that the
+	// filter's document-frequency range and vocabulary cap keep, which may
+	// be none; or this vector if it was built without a filter or its
+	// file failed to load.
+	// Properties: This vector is not changed, so it can still be removed
+	// from the statistics it was added to.  Stopwords were dropped as the
+	// file was tokenized and are not looked up again.  A document is
+	// usually built, added with CorpusStatistics.Add, then pruned.
+	//-----------------------------------------------------------------------
+	public VectorTextFile3 Prune()
+	{
+		if ((m_Filter == null) || (m_CountedWords == null))
+		{
+			return this;
+		}
+		VectorTextFile3 result = new VectorTextFile3(m_Filter.Apply(m_CountedWords, true));
+		result.m_Filter = m_Filter;
+		return result;
+	}
+	
+	//-----------------------------------------------------------------------
+	// Update: Returns the vector of the text with some words added and
+	// others removed, without reading, sorting or counting the rest of the
+	// text again.
+	//
+	// Input: The text added, and the text removed; either may be null.  The
+	// words of each are found as in a file.
+	// Output: A new VectorTextFile3 of the changed text, wrapping its
+	// TermVector as VectorTextFile3(TermVector) does, with this vector's
+	// filter.
+	// Assumptions: Every word removed occurs in the text at least as many
+	// times as it is removed; otherwise an IllegalArgumentException is
+	// thrown.
+	// Properties: This vector is not changed, so it stays correct wherever
+	// it is shared, e.g., in a VectorCache, which keeps serving the vector
+	// of the file as it is on disk, or an LshIndex or InvertedIndex, which
+	// keep the text as it was added.  To index the changed text, add the
+	// new vector.  Stopwords of the filter are dropped from both texts, but
+	// its other pruning is not applied again.
+	//-----------------------------------------------------------------------
+	public VectorTextFile3 Update(String appended, String removed)
+	{
+		return ApplyDelta(CountText(appended), CountText(removed));
+	}
+	
+	//-----------------------------------------------------------------------
+	// Append: Returns the vector of a growing file, e.g., a log, from the
+	// vector of its start, reading only the bytes written since.
+	//
+	// Input: String containing a filename, and the range of bytes
+	// [begin, end) to add: begin is the position up to which this vector
+	// counted the file, e.g., the file's size when the vector was built, or
+	// end of the previous Append, and end is usually the file's size now.
+	// Output: A new VectorTextFile3, as for Update.
+	// Assumptions: The file was only appended to, and begin is at a word
+	// boundary, e.g., just after a space or end-of-line marker; otherwise
+	// the word crossing it is counted as two words.
+	// Properties: As for Update.
+	//-----------------------------------------------------------------------
+	public VectorTextFile3 Append(String fileName, long begin, long end) throws IOException
+	{
+		WordCounter counter = new WordCounter();
+		WordTokenizer.TokenizeRange(fileName, begin, end, Filtered(counter));
+		return ApplyDelta(counter, null);
 	}
 	
 	/*****************************
@@ -144,73 +437,25 @@ public class VectorTextFile3 {
 	// DotProduct: Calculates the dot-product of two TextFile vectors.
 	//			
 	// Input: Two vectors of type VectorTextFile3
-	// Output: An integer representing their dot-product
-	// Assumptions: For each vector, m_CountedWords contains a sorted list 
-	// of distinct word/count pairs, and m_WordPairCount contains the number
-	// of word/count pairs.
+	// Output: A long integer representing their dot-product
+	// Assumptions: For each vector, m_CountedWords contains the vector of
+	// distinct term id/count pairs, built against TermDictionary.Global.
 	// Methodology: The dot-product is calculated by summing the product of 
 	// the individual vector components. That is, if D(w,X) is the number of 
 	// times word w appears in vector X, then the dot-product of A and B is 
 	// defined as: 
 	//					Sum_{every w in A and B) [D(w,A)*D(w,B)]
+	// See TermVector.DotProduct, which compares words by their integer ids,
+	// and gallops or probes a hash table when one vector is much shorter.
 	//-----------------------------------------------------------------------
-	static int DotProduct(VectorTextFile3 A, VectorTextFile3 B)
+	static long DotProduct(VectorTextFile3 A, VectorTextFile3 B)
 	{
-		// Initialize local variables:
-		
-		// The sum is initially zero
-		int sum = 0;
-		
-		// Alength is the number of word/count pairs in A 
-		int Alength = A.m_WordPairCount;
-		// We begin with word/count pair zero
-		int Aindex = 0;
-		
-		// Blength is the number of word/count pairs in B
-		int Blength = B.m_WordPairCount;
-		// We begin with word/count pair zero
-		int Bindex = 0;
-		
-		// We iterate through all the word/count pairs, looking for words that 
-		// appear in both A and B.  We continue until we run out of words in 
-		// either A or B.
-		while ((Aindex < Alength) && (Bindex < Blength))
+		// A vector whose file failed to load has no words.
+		if ((A.m_CountedWords == null) || (B.m_CountedWords == null))
 		{
-			// First, get the word associated with Aindex in A
-			WordCountPair Awordpair = A.m_CountedWords[Aindex];
-			String Aword = Awordpair.getWord();
-			
-			// Next, get the word associated with Bindex in B
-			WordCountPair Bwordpair = B.m_CountedWords[Bindex];
-			String Bword = Bwordpair.getWord();
-			
-			// If Aword==Bword, then we have found a word in both vector A and B
-			if (Aword.equals(Bword))
-			{
-				// Add the product of the counts to the sum.
-				sum += (Awordpair.getCount()*Bwordpair.getCount());
-				
-				// Next, increment both Aindex and Bincex to consider the next
-				// word in both vectors.
-				Aindex++;
-				Bindex++;
-			}
-			else if (Aword.compareTo(Bword) > 0)
-			{
-				// Otherwise, if (Aword > Bword) in alphabetic order, we
-				// increment Bindex, going to the next WordCountPair in B.
-				Bindex++;
-			}
-			else
-			{
-				// Otherwise, (Bword > Aword) in alphabetic order.  We
-				// increment Aindex, going to the next WordCountPair in A.
-				Aindex++;
-			}
+			return 0;
 		}
-		
-		// Finally, we return the dot-product.
-		return sum;
+		return TermVector.DotProduct(A.m_CountedWords, B.m_CountedWords);
 	}
 	
 	////////////////////////////////////////////////////////////////////////
@@ -223,18 +468,40 @@ public class VectorTextFile3 {
 	//                       where (AB) is the vector dot product of A and B,
 	//						 |A| is the norm of the vector A, and |B| is the
 	// 						 norm of vector B.
+	//                       One call in VectorMetrics.ComparisonSampleRate
+	//                       is timed and has its allocations measured.
 	/////////////////////////////////////////////////////////////////////////
 	static double Angle(VectorTextFile3 A, VectorTextFile3 B)
+	{
+		VectorMetrics metrics = VectorMetrics.Global;
+		if (!metrics.SampleComparison())
+		{
+			return ComputeAngle(A, B);
+		}
+		long allocatedBefore = VectorMetrics.ThreadAllocatedBytes();
+		long start = System.nanoTime();
+		double theta = ComputeAngle(A, B);
+		long nanos = System.nanoTime() - start;
+		metrics.RecordComparison(nanos, (allocatedBefore < 0) ? -1 : VectorMetrics.ThreadAllocatedBytes() - allocatedBefore);
+		return theta;
+	}
+	
+	//-----------------------------------------------------------------------
+	// ComputeAngle: Calculates the angle between two vectors, as described
+	// for Angle, without recording metrics.
+	//-----------------------------------------------------------------------
+	private static double ComputeAngle(VectorTextFile3 A, VectorTextFile3 B)
 	{
 		// First calculate the dot product of the vectors A and B
-		int dot = VectorTextFile3.DotProduct(A, B);
+		long dot = VectorTextFile3.DotProduct(A, B);
 		
-		// Second, calculate the norm of the two vectors
+		// Second, get the (cached) norm of the two vectors
 		double Anorm = A.Norm();
 		double Bnorm = B.Norm();
 		
 		// Third, calculate (AB)/(|A|*|B|)
-		double result = dot/(Anorm*Bnorm);
+		// Rounding can push this just past 1 for identical vectors, so clamp it.
+		double result = Math.min(1.0, dot/(Anorm*Bnorm));
 		
 		// Lastly, take the arccos of the result
 		double theta = Math.acos(result);
@@ -256,166 +523,310 @@ public class VectorTextFile3 {
 	// Properties: On completion, every word in the specified file is included 
 	// in the word list m_WordList.  Each word appears the same number of times 
 	// in the list as it does in the original file.  All letters in all words 
-	// are lower-case, and all punctuation/non-letters are removed.
+	// are lower-case, and all punctuation/non-letters are removed.  The 
+	// integer m_FileWordCount contains the number of words in m_WordList,
+	// which is also the length of m_WordList.
+	// Methodology: The file is tokenized in a single pass by a WordTokenizer,
+	// which goes straight from raw bytes to words.  Only one String is 
+	// created per distinct word, and none per character, and m_Interned is
+	// set.  The list grows by half as it fills, and is trimmed to size at
+	// the end.
 	//-----------------------------------------------------------------------
-	private void ParseFile(String fileName) throws IOException
+	void ParseFile(String fileName) throws IOException
 	{
-		// First, read the file into a single long string.
-		String strTextFile = ReadFile(fileName);
+		// Every word but the last is followed by at least one separator, so 
+		// a file of n bytes holds at most (n+1)/2 words.  Rather than 
+		// allocating that many slots, start from a typical count of one
+		// word per WordSizeEstimate bytes and grow as needed.
+		long lMaxWords = (new File(fileName).length() + 1) / 2;
+		if (lMaxWords >= Integer.MAX_VALUE)
+		{
+			throw new IOException("File has too many words to sort in memory: " + fileName);
+		}
+		final int iMaxWords = (int)lMaxWords;
+		m_WordList = new String[(int)Math.min(iMaxWords, 2L * iMaxWords / WordSizeEstimate + 16)];
+		m_FileWordCount = 0;
 		
-		// Next, divide the string into words.
-		SplitString(strTextFile);
-	}
-	
-	//-----------------------------------------------------------------------
-	// ReadFile: Takes a file name, and returns the file as a String. 
-	//
-	// Input: String containing a filename
-	// Output: String containing all the text in the file
-	// Properties: The string returned contains every character in the 
-	// specified file, in the same order, except:
-	// (a) Every letter is lower-case
-	// (b) All punctuation is removed.
-	// (c) Each end-of-line marker ('\n') is replaced with a space.
-	// (d) All (other) non-letters and non-spaces are removed.
-	// (E) Words are separated by exactly one space.
-	//-----------------------------------------------------------------------
-	private String ReadFile(String fileName) throws IOException
-	{
-		// Declare and initialize local variables 
-		FileInputStream inputStream = null;		
-		int iSize = 0;		
-		char[] charBuffer = null;		
-		int iCharCount = 0;
-								
-		// Begin a block of code that handles exceptions
-		try{
-			// Open the file as a stream
-			inputStream = new FileInputStream(fileName);
-			
-			// Determine the size of the file, in bytes
-			iSize = inputStream.available();
-			
-			// Initialize the char buffer to be arrays of the appropriate size.									
-			charBuffer = new char[iSize];			
-			
-			// Read in the file, one character at a time.
-			// For each character, normalize it, removing punctuation and capitalization.
-			for (int i=0; i<iSize; i++)
+		// Tokenize the file, adding each word to the list of words.  Words
+		// are interned, so every occurrence of a word shares one String.
+		final WordInterner interner = new WordInterner();
+		WordTokenizer.TokenizeFile(fileName, new TokenSink() {
+			public void addToken(char[] word, int length)
 			{
-				// Read a character
-				char c = (char)inputStream.read();
-				
-				// Ensure that the character is lower-case
-				c = Character.toLowerCase(c);
-				
-				// Check if the character is a letter, a digit, or whitespace, or a new line
-				if (Character.isLetter(c))
-				{					
-					charBuffer[iCharCount] = c;	
-					iCharCount++;
-				}
-				else if ((c == ' ') || (c == '\n'))
+				if ((m_Filter != null) && !m_Filter.Accepts(word, length))
 				{
-					// In this case, we add a space to the string.
-					// Note: only add a space if the previous character 
-					// is not also a space.  This prevents adding two spaces in a row.
-					if ((iCharCount > 0) && (charBuffer[iCharCount-1] != ' '))
-					{
-						charBuffer[iCharCount] = ' ';	
-						iCharCount++;
-					}					
+					return;
 				}
-				else
+				if (m_FileWordCount == m_WordList.length)
 				{
-					// do nothing
+					int capacity = (int)Math.min(iMaxWords, m_WordList.length + (m_WordList.length >> 1) + 16L);
+					m_WordList = Arrays.copyOf(m_WordList, capacity);
 				}
-			}														
-		}   // end of try block 
-		finally // handle any exceptions
-		{			
-			// If the file is open, then close it.
-			if (inputStream != null){								
-				inputStream.close();					
+				m_WordList[m_FileWordCount] = interner.intern(word, length);
+				m_FileWordCount++;
 			}
-		}	
+		});
+		m_Interned = true;
 		
-		return new String(charBuffer);
+		// Trim the list, so that it holds only the words.
+		if (m_FileWordCount < m_WordList.length)
+		{
+			m_WordList = Arrays.copyOf(m_WordList, m_FileWordCount);
+		}
 	}
-		
+	
 	//-----------------------------------------------------------------------
-	// SplitString: Takes a string representing a file and parses it into 
-	// words that are stored in m_WordList. 
+	// CountWordsByHashing: Reads a text file and counts its words without
+	// sorting them.
 	//
 	// Input: String containing a filename
 	// Output: None
-	// Assumptions: The input string is assumed to consist of a set of words 
-	// separated by exactly one space.  
-	// Properties: On completion, the array m_WordList stores every word in 
-	// the initial string, one word per slot in the array. The integer 
-	// m_FileWordCount contains the number of words in m_WordList.
+	// Properties: On completion, m_CountedWords and m_WordPairCount are as 
+	// for CountWordFrequencies, and m_FileWordCount is the number of words in
+	// the file.  m_WordList is not used.
+	// Methodology: Each word is counted in a WordCounter hash table as it is 
+	// tokenized, which is O(N) for N words.  Only the D distinct words are
+	// then sorted, by term id, in O(D log D).
 	//-----------------------------------------------------------------------
-	private void SplitString(String strTextFile)
+	void CountWordsByHashing(String fileName) throws IOException
 	{
-		// Initialize local variables:
-		int iStringSize = strTextFile.length();
-		int iWordCount = 0;
-		String word = "";
-		
-		// Initialize class variables:
-		// Note: the length of the string is an overestimate of the number of words in the String.
-		// As a result, we allocate too much space, wasting memory.
-		// It would be better to allocate space more efficiently.
-		m_WordList = new String[iStringSize];
-		
-		// Iterate through the string, examining every character.
-		// Accumulate characters in words, detecting word breaks.
-		for (int i=0; i<iStringSize; i++)
+		WordCounter counter = new WordCounter();
+		WordTokenizer.TokenizeFile(fileName, Filtered(counter));
+		SetCounts(counter);
+	}
+	
+	//-----------------------------------------------------------------------
+	// CountWordsInChunks: Reads a text file and counts its words, splitting
+	// the work between threads.
+	//
+	// Input: String containing a filename, and the approximate number of
+	// bytes in each chunk.
+	// Output: None
+	// Properties: On completion, as for CountWordsByHashing.
+	// Methodology: The file is split every chunkSize bytes, each split moved
+	// forward to the next word boundary (FileTextReader.WordBoundary), so
+	// that every word lies in exactly one chunk.  One task per processor
+	// takes chunks in turn and counts them into its own WordCounter, so
+	// threads never contend, and only one table per thread is held however
+	// many chunks there are.  The tables are then added together.  The
+	// tasks block on reads, so they run on a pool of their own rather than
+	// the common ForkJoinPool, where they would hold up its other work; the
+	// pool is shut down when counting ends.  Counts are collected as the
+	// tasks complete, so if a chunk fails, the other tasks are cancelled at
+	// once and take no more chunks.
+	//-----------------------------------------------------------------------
+	void CountWordsInChunks(final String fileName, long chunkSize) throws IOException
+	{
+		// Find the chunk boundaries.
+		final List<Long> bounds = new ArrayList<Long>();
+		FileTextReader reader = new FileTextReader(fileName);
+		try{
+			long size = reader.size();
+			long bound = 0;
+			bounds.add(bound);
+			while (bound < size)
+			{
+				bound = reader.WordBoundary(Math.max(bound + chunkSize, bound + 1));
+				bounds.add(bound);
+			}
+		}
+		finally
 		{
-			// Read a character
-			char c = strTextFile.charAt(i);
-			
-			// Check if the character is part of a word and not a space
-			if ((Character.isLetter(c)) && (c != ' ')) 
+			reader.close();
+		}
+		
+		// Count the chunks in parallel.
+		final int chunkCount = bounds.size() - 1;
+		final AtomicInteger nextChunk = new AtomicInteger();
+		int workers = Math.max(1, Math.min(chunkCount, Runtime.getRuntime().availableProcessors()));
+		ExecutorService pool = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+			public Thread newThread(Runnable task)
 			{
-				// Here, the character is part of a word, so add it to the word.
-				word += c;
+				Thread thread = new Thread(task, "CountWordsInChunks");
+				thread.setDaemon(true);
+				return thread;
 			}
-			else
+		});
+		CompletionService<WordCounter> done = new ExecutorCompletionService<WordCounter>(pool);
+		List<Future<WordCounter>> counters = new ArrayList<Future<WordCounter>>();
+		WordCounter[] partial = new WordCounter[workers];
+		int largest = 0;
+		try{
+			for (int w=0; w<workers; w++)
 			{
-				// Otherwise, the character is not part of a word.
-				// If we have found a non-empty word, add it to the list of words.
-				if (word != "")
+				counters.add(done.submit(new Callable<WordCounter>() {
+					public WordCounter call() throws IOException
+					{
+						WordCounter counter = new WordCounter();
+						int chunk;
+						try{
+							while ((chunk = nextChunk.getAndIncrement()) < chunkCount)
+							{
+								WordTokenizer.TokenizeRange(fileName, bounds.get(chunk), bounds.get(chunk+1), Filtered(counter));
+							}
+						}
+						catch (IOException | RuntimeException e)
+						{
+							// Leave no chunk for the other tasks.
+							nextChunk.set(chunkCount);
+							throw e;
+						}
+						return counter;
+					}
+				}));
+			}
+			
+			// Wait for the counts as they complete, so that a failure is seen
+			// at once, finding the largest table.
+			for (int w=0; w<workers; w++)
+			{
+				partial[w] = done.take().get();
+				if (partial[w].getDistinctCount() > partial[largest].getDistinctCount())
 				{
-					// Add the word to the list of words
-					m_WordList[iWordCount] = word;
-				
-					// Increment the number of words discovered.
-					iWordCount++;
-
-					// Reinitialize the word to the empty string
-					word = "";
+					largest = w;
 				}
 			}
 		}
-		
-		// Check if there is any leftover word, once the string is complete.
-		// If so, add the word to the word list, and increment the word count.
-		if (word != "")
+		catch (InterruptedException e)
 		{
-			m_WordList[iWordCount] = word;			
-			iWordCount++;
+			Cancel(counters, nextChunk, chunkCount);
+			Thread.currentThread().interrupt();
+			throw new IOException("Counting was interrupted: " + fileName, e);
+		}
+		catch (ExecutionException e)
+		{
+			Cancel(counters, nextChunk, chunkCount);
+			throw new IOException("Counting a chunk failed: " + fileName, e.getCause());
+		}
+		finally
+		{
+			pool.shutdown();
 		}
 		
-		// Save the word count.
-		m_FileWordCount = iWordCount;
-	}				
+		// Merge the counts into the largest table.
+		for (int w=0; w<workers; w++)
+		{
+			if (w != largest)
+			{
+				partial[largest].addAll(partial[w]);
+			}
+		}
+		SetCounts(partial[largest]);
+	}
+	
+	//-----------------------------------------------------------------------
+	// Cancel: Stops the chunk-counting tasks after one has failed: no task
+	// takes another chunk, and those still counting are interrupted.
+	//-----------------------------------------------------------------------
+	private static void Cancel(List<Future<WordCounter>> counters, AtomicInteger nextChunk, int chunkCount)
+	{
+		nextChunk.set(chunkCount);
+		for (Future<WordCounter> counter : counters)
+		{
+			counter.cancel(true);
+		}
+	}
+	
+	//-----------------------------------------------------------------------
+	// CountWordsByExternalSort: Reads a text file and counts its words by
+	// sorting them, holding only a bounded number of them in memory.
+	//
+	// Input: String containing a filename, and the approximate number of
+	// bytes of words to hold in memory at once.
+	// Output: None
+	// Properties: On completion, as for CountWordsByHashing.  Runs are
+	// spilled to the default temporary directory, and deleted afterwards.
+	//-----------------------------------------------------------------------
+	void CountWordsByExternalSort(String fileName, long memoryBudget) throws IOException
+	{
+		ExternalWordSorter sorter = new ExternalWordSorter(memoryBudget, null, m_Filter);
+		m_CountedWords = sorter.Count(fileName, TermDictionary.Global);
+		m_WordPairCount = m_CountedWords.length();
+		m_FileWordCount = (int)Math.min(sorter.getTokenCount(), Integer.MAX_VALUE);
+	}
+	
+	//-----------------------------------------------------------------------
+	// SetCounts: Sets m_CountedWords, m_WordPairCount and m_FileWordCount
+	// from a counter.  m_FileWordCount is capped at Integer.MAX_VALUE, which
+	// only files of many gigabytes exceed.
+	//-----------------------------------------------------------------------
+	private void SetCounts(WordCounter counter)
+	{
+		m_FileWordCount = (int)Math.min(counter.getTokenCount(), Integer.MAX_VALUE);
+		m_CountedWords = counter.toTermVector(TermDictionary.Global);
+		m_WordPairCount = m_CountedWords.length();
+	}
+	
+	//-----------------------------------------------------------------------
+	// Filtered: Returns a sink passing on to the counter only the words the
+	// filter accepts, or the counter itself with no filter.
+	//-----------------------------------------------------------------------
+	private TokenSink Filtered(WordCounter counter)
+	{
+		return (m_Filter == null) ? counter : m_Filter.Wrap(counter);
+	}
+	
+	//-----------------------------------------------------------------------
+	// CountText: Counts the words of a text in a WordCounter, or returns
+	// null for a null text.
+	//-----------------------------------------------------------------------
+	private WordCounter CountText(String text)
+	{
+		if (text == null)
+		{
+			return null;
+		}
+		WordCounter counter = new WordCounter();
+		WordTokenizer tokenizer = new WordTokenizer(Filtered(counter));
+		char[] chars = text.toCharArray();
+		tokenizer.feed(chars, 0, chars.length);
+		tokenizer.finish();
+		return counter;
+	}
+	
+	//-----------------------------------------------------------------------
+	// ApplyDelta: Returns a new vector with the words of one counter added
+	// to this one, and those of another removed; either may be null.  A
+	// vector whose file failed to load is taken to have no words.
+	//-----------------------------------------------------------------------
+	private VectorTextFile3 ApplyDelta(WordCounter added, WordCounter removed)
+	{
+		TermVector base = m_CountedWords;
+		if (base == null)
+		{
+			base = new TermVector(TermDictionary.Global, new int[0], new int[0], 0);
+		}
+		VectorTextFile3 result = new VectorTextFile3(TermVector.Update(base,
+			(added == null) ? null : added.toTermVector(TermDictionary.Global),
+			(removed == null) ? null : removed.toTermVector(TermDictionary.Global)));
+		result.m_Filter = m_Filter;
+		return result;
+	}
 	
 	// the insertions sort method from VectorTextFile2 that takes in begin and end indices
 	// and sort only [begin...end] using insertion sort
 	public void insertionSortWords(int begin, int end) throws Exception {
-		// System.out.println("Start insertion sort");
+		// Check for errors
+		if ((m_WordList==null) || (m_FileWordCount==0)) {
+			throw new Exception("Failed in InsertionSortWords: no words to sort.");
+		}
+		else if (begin < 0 || end >= m_WordList.length) {
+			throw new Exception("Indices not valid.");
+		}
 		
+		InsertionSort(m_WordList, begin, end);
+	}
+	
+	//-----------------------------------------------------------------------
+	// InsertionSort: Sorts Words[begin..end] using insertion sort.
+	//
+	// Input: An array of words, and inclusive indices into it.
+	// Output: None
+	// Properties: Words outside [begin..end] are never touched, so disjoint 
+	// ranges can be sorted concurrently.
+	//-----------------------------------------------------------------------
+	static void InsertionSort(String[] Words, int begin, int end)
+	{
 		// Initialize local variables:
 		
 		// index stores the slot in the array that we are trying to fill
@@ -425,39 +836,31 @@ public class VectorTextFile3 {
 		// iMax stores the index of the largest sorted word
 		int iMaxSorted = 0;
 		
-		// Check for errors
-		if ((m_WordList==null) || (m_FileWordCount==0)) {
-			throw new Exception("Failed in InsertionSortWords: no words to sort.");
-		}
-		else if (begin < 0 || end >= m_WordList.length) {
-			throw new Exception("Indices not valid.");
-		}
-
-		// Iterate through every index in the array.
+		// Iterate through every index in the range.
 		// At the beginning of each iteration of the loop, we have sorted
-		// the elements in the prefix m_WordList[0..iMaxSorted].
+		// the elements in Words[begin..iMaxSorted].
 		// The goal of the iteration is to find the proper slot for the string
-		// m_WordList[iMaxSorted+1].
-		// At the end of each iteration of the loop, we have sorted the 
-		// prefix of the array m_WordList[0..iMaxSorted+1].
+		// Words[iMaxSorted+1].
+		// At the end of each iteration of the loop, we have sorted 
+		// Words[begin..iMaxSorted+1].
 		for (iMaxSorted = begin; iMaxSorted<end; iMaxSorted++)
 		{
 			// First, fix the string we are going to sort into place
-			SortString = m_WordList[iMaxSorted+1];
+			SortString = Words[iMaxSorted+1];
 			
-			// We need to find where SortString fits in the array [1..iMaxSorted+1]
+			// We need to find where SortString fits in the array [begin..iMaxSorted+1]
 			index = iMaxSorted+1;
-			while (index > 0 && SortString.compareTo(m_WordList[index-1]) < 0) {
-				m_WordList[index] = m_WordList[index-1];
+			while (index > begin && CompareWords(SortString, Words[index-1]) < 0) {
+				Words[index] = Words[index-1];
 				index--;
 			}
 			
 			// Now that we have found where SortString goes,  
 			// move it into place.
-			m_WordList[index] = SortString;				
+			Words[index] = SortString;				
 		}
-		// Now that we are done sorting, set a flag indicating that the sort is complete.
 	}
+	
 	//-----------------------------------------------------------------------
 	// MergeSortWords: Sorts the words in the array m_WordList. 
 	//
@@ -470,13 +873,14 @@ public class VectorTextFile3 {
 	// sorted alphabetically, and the flag m_Sorted is set to true. Note 
 	// that the array indices are inclusive, i.e., m_WordList[Begin] and
 	// m_WordList[End] are both sorted.
-	// Methodology: The sorting is accomplished via `merge sort.'  	
+	// Methodology: The sorting is accomplished via `merge sort.'  A single
+	// scratch array holding a copy of the range is allocated here, and the
+	// levels of the recursion alternate between merging into the scratch 
+	// array and merging back into m_WordList (see SortInto), so no merge
+	// allocates or copies back.
 	//-----------------------------------------------------------------------
 	public void MergeSortWords(int Begin, int End) throws Exception
 	{	
-		
-		//System.out.println("Merge sort starts.");
-		
 		// First, check for errors
 		if (End < Begin)
 		{
@@ -487,13 +891,37 @@ public class VectorTextFile3 {
 			throw new Exception("Failed in MergeSortWords: no words to sort.");
 		}
 		
+		// The scratch array starts as a copy of the range to sort.
+		String[] Scratch = new String[End+1];
+		System.arraycopy(m_WordList, Begin, Scratch, Begin, End-Begin+1);
+		
+		SortInto(Scratch, m_WordList, Begin, End);
+	}
+	
+	//-----------------------------------------------------------------------
+	// SortInto: Sorts one range of words, ping-ponging between two arrays.
+	//
+	// Input: Source and Target are two arrays, and Begin and End are 
+	// inclusive indices into both.
+	// Output: None
+	// Assumptions: Source[Begin..End] and Target[Begin..End] hold the same
+	// words, in the same order.
+	// Properties: On completion, Target[Begin..End] is sorted alphabetically,
+	// and Source[Begin..End] holds the same words in some order.
+	// Methodology: Each half is sorted into Source (using Target as its 
+	// scratch space), and the two halves are then merged from Source into 
+	// Target.  If the halves are already in order, they are copied instead
+	// of merged.  Ranges of fewer than MinMergeSize words are insertion-sorted
+	// directly in Target.
+	//-----------------------------------------------------------------------
+	static void SortInto(String[] Source, String[] Target, int Begin, int End)
+	{
 		// Determine the number of words in the array to sort
 		int NumWords = End-Begin+1;
 		
-		// If there is only one element in the list to sort, then
-		// by definition, it is already well sorted.
+		// Short lists are faster to sort by insertion.
 		if (NumWords < MinMergeSize) {
-			insertionSortWords(Begin, End);
+			InsertionSort(Target, Begin, End);
 			return;
 		}
 		
@@ -504,80 +932,130 @@ public class VectorTextFile3 {
 		// Note that division by two automatically rounds to an integer.
 		int Middle = Begin + NumWords/2;		
 				
-		// Recursively sort each half-list.
-		MergeSortWords(Begin, Middle-1);
-		MergeSortWords(Middle, End);		
+		// Recursively sort each half-list into Source.
+		SortInto(Target, Source, Begin, Middle-1);
+		SortInto(Target, Source, Middle, End);		
 		
-				
-		// Merge the two sorted lists.
-		Merge(Begin, Middle, End);
+		// Merge the two sorted lists into Target.
+		Merge(Source, Target, Begin, Middle, End);
 	}
 	
 	//-----------------------------------------------------------------------
-	// Merge: Merges two sorted lists. 
+	// ParallelMergeSortWords: Sorts the words in the array m_WordList, using
+	// every processor.
 	//
-	// Input: Begin, Middle, and End are indices into the array m_WordList.
+	// Input: Begin and End are indices into the array m_WordList, and 
+	// Threshold is the number of words below which a range is sorted by a
+	// single thread.
 	// Output: None
-	// Assumptions: m_WordList holds a non-empty set of words, and
-	// m_FileWordCount has a count of the number of words.  In addition,
-	// we require that 0 <= Begin <= Middle <= End < m_FileWordCount.
-	// Also, we require that Begin < End.
-	// Properties: On completion, the words in m_WordList[Begin..End] are  
-	// sorted alphabetically, and the flag m_Sorted is set to true.
-	// Methodology: The merging is accomplished by iteratively scanning each
-	// of the two lists, selecting the smallest element at each step.
+	// Assumptions: As for MergeSortWords.
+	// Properties: As for MergeSortWords.
+	// Methodology: A MergeSortTask is run in the common ForkJoinPool.  Each
+	// task above the threshold sorts its two halves in parallel and merges
+	// them, ping-ponging between m_WordList and one scratch array allocated
+	// here, as in SortInto.  Ranges below the threshold are sorted by 
+	// SortInto itself.
 	//-----------------------------------------------------------------------
-	public void Merge(int Begin, int Middle, int End)
+	public void ParallelMergeSortWords(int Begin, int End, int Threshold) throws Exception
 	{
-		// Determine the number of words in the array to sort
-		int NumWords = End-Begin+1;
+		// First, check for errors
+		if (End < Begin)
+		{
+			throw new Exception("Failed ParallelMergeSortWords: End is not greater than Begin.");
+		}
+		if ((m_WordList==null) || (m_FileWordCount<1))
+		{
+			throw new Exception("Failed in ParallelMergeSortWords: no words to sort.");
+		}
 		
-		// Create a temporary list to store the merged lists
-		String[] MergedList = new String[NumWords];
+		String[] Scratch = new String[End+1];
+		System.arraycopy(m_WordList, Begin, Scratch, Begin, End-Begin+1);
+		
+		ForkJoinPool.commonPool().invoke(new MergeSortTask(Scratch, m_WordList, Begin, End, Threshold));
+	}
+	
+	//-----------------------------------------------------------------------
+	// Merge: Merges two sorted lists. 
+	//
+	// Input: Source and Target are two arrays, and Begin, Middle, and End 
+	// are indices into both.
+	// Output: None
+	// Assumptions: Source[Begin..Middle-1] and Source[Middle..End] are each
+	// sorted, and 0 <= Begin < Middle <= End.
+	// Properties: On completion, Target[Begin..End] holds the words of
+	// Source[Begin..End], sorted alphabetically.  Only those slots of Target
+	// are written, so merges of disjoint ranges can run concurrently.
+	// Methodology: If the last word of the first list is no greater than the
+	// first word of the second, the lists are already in order and are
+	// copied without comparing.  Otherwise, the merging is accomplished by
+	// iteratively scanning each of the two lists, selecting the smallest
+	// element at each step.
+	//-----------------------------------------------------------------------
+	static void Merge(String[] Source, String[] Target, int Begin, int Middle, int End)
+	{
+		// If the two lists are already in order, there is nothing to merge.
+		if (CompareWords(Source[Middle-1], Source[Middle]) <= 0)
+		{
+			System.arraycopy(Source, Begin, Target, Begin, End-Begin+1);
+			return;
+		}
 		
 		// We begin at the beginning of each of the two lists
 		int AListHead = Begin;
 		int BListHead = Middle;		
 		
-		for (int i=0; i<NumWords; i++)
+		for (int i=Begin; i<=End; i++)
 		{
 			// If we have exhausted all the words in AList,
 			// then we copy a word from BList
 			if (AListHead == Middle)
 			{
-				MergedList[i] = m_WordList[BListHead];
+				Target[i] = Source[BListHead];
 				BListHead++;
 			}
 			// Otherwise, if we have exhausted all the words in BList,
 			// then we copy a word from AList
 			else if (BListHead == End+1)
 			{
-				MergedList[i] = m_WordList[AListHead];
+				Target[i] = Source[AListHead];
 				AListHead++;
 			}		
 			// Otherwise, we compare the words at the head of AList and BList.
 			// If the word at the head of BList is smaller than the word at
 			// the head of AList, then we copy a word from BList.
-			else if (m_WordList[AListHead].compareTo(m_WordList[BListHead]) > 0)
+			else if (CompareWords(Source[AListHead], Source[BListHead]) > 0)
 			{
-				MergedList[i] = m_WordList[BListHead];
+				Target[i] = Source[BListHead];
 				BListHead++;
 			}
 			// Otherwise, if the word at the head of AList is smaller than the word
 			// at the head of BList, then we copy a word from AList.
 			else
 			{
-				MergedList[i] = m_WordList[AListHead];
+				Target[i] = Source[AListHead];
 				AListHead++;
 			}
 		}	
-		
-		// Now that we are done merging, we copy the MergedList back into the 
-		// original array		
-		for (int i=Begin; i<=End; i++)
-		{
-			m_WordList[i] = MergedList[i-Begin];
-		}
+	}
+	
+	//-----------------------------------------------------------------------
+	// CompareWords: Compares two words alphabetically, as String.compareTo,
+	// but at once when they are the same instance, as repeated words of an
+	// interned list are.
+	//-----------------------------------------------------------------------
+	static int CompareWords(String A, String B)
+	{
+		return (A == B) ? 0 : A.compareTo(B);
+	}
+	
+	//-----------------------------------------------------------------------
+	// SameWord: Returns true if two words of m_WordList are equal.  When the
+	// list is interned, equal words are the same instance, so a reference
+	// comparison suffices.
+	//-----------------------------------------------------------------------
+	private boolean SameWord(String A, String B)
+	{
+		return m_Interned ? (A == B) : A.equals(B);
 	}
 		
 	//-----------------------------------------------------------------------
@@ -588,17 +1066,15 @@ public class VectorTextFile3 {
 	// Output: None
 	// Assumptions: m_WordList holds a sorted, non-empty set of words, and
 	// m_FileWordCount has a count of the number of words.
-	// Properties: On completion, m_CountedWords is a sorted array of 
-	// word/count pairs containing one entry for every distinct word in
+	// Properties: On completion, m_CountedWords is a TermVector of 
+	// term id/count pairs containing one entry for every distinct word in
 	// m_WordList.  The count associated with each word is the number of
 	// times that word appears in m_WordList.  The integer m_WordPairCount
 	// contains the number of distinct words in m_WordList, i.e., the number of 
 	// entries in m_CountedWords.
 	//-----------------------------------------------------------------------
 	public void PrintWordFrequencies() {
-		for (int i=0; i<m_WordPairCount; i++) {
-		System.out.println(m_CountedWords[i]);
-		}
+		System.out.print(m_CountedWords);
 	}
 	public void CountWordFrequencies() throws Exception
 	{
@@ -608,11 +1084,19 @@ public class VectorTextFile3 {
 			throw new Exception("Failed in CountWordFrequencies: no words to sort.");
 		}
 		
-		// Initialize the m_CountedWords array.
-		// We use m_FileWordCount as a safe estimate of the number of distinct 
-		// words in m_WordList.  Notice that this is an inefficient use of space,
-		// as m_CountedWords will likely be much smaller than m_WordList.
-		m_CountedWords = new WordCountPair[m_FileWordCount];
+		// Initialize the term id and count arrays.
+		// The list is sorted, so there is one pair per change of word, plus
+		// the first; count those first, so that the arrays are exactly full.
+		int iDistinct = 1;
+		for (int i=1; i<m_FileWordCount; i++)
+		{
+			if (!SameWord(m_WordList[i], m_WordList[i-1]))
+			{
+				iDistinct++;
+			}
+		}
+		int[] termIds = new int[iDistinct];
+		int[] counts = new int[iDistinct];
 		
 		// Initialize the number of count/value pairs to zero.
 		int iNumPairs = 0;
@@ -626,7 +1110,7 @@ public class VectorTextFile3 {
 		for (int i=1; i<m_FileWordCount; i++)
 		{
 			// If we find another copy of the word:
-			if (m_WordList[i].equals(word))
+			if (SameWord(m_WordList[i], word))
 			{
 				// Then increment the count.
 				count++;
@@ -634,8 +1118,9 @@ public class VectorTextFile3 {
 			else
 			{
 				// Otherwise, we have found a new word.
-				// Store the old word and its count as new WordCountPair.
-				m_CountedWords[iNumPairs] = new WordCountPair(word, count);
+				// Store the old word's id and its count.
+				termIds[iNumPairs] = TermDictionary.Global.getId(word);
+				counts[iNumPairs] = count;
 				// Increment the number of word/count pairs that we have discovered.
 				iNumPairs++;
 				
@@ -647,10 +1132,14 @@ public class VectorTextFile3 {
 		}
 		
 		// Add the last word that we found. 
-		m_CountedWords[iNumPairs] = new WordCountPair(word, count);
+		termIds[iNumPairs] = TermDictionary.Global.getId(word);
+		counts[iNumPairs] = count;
 		// Increment the number of word/count pairs that we have discovered.
 		iNumPairs++;
 		
+		// Build the vector, which keeps only the iNumPairs entries.
+		m_CountedWords = new TermVector(TermDictionary.Global, termIds, counts, iNumPairs);
+		
 		// Save the number of word/count pairs in m_WordPairCount
 		m_WordPairCount = iNumPairs;			
 	}
@@ -684,7 +1173,7 @@ public class VectorTextFile3 {
 		// are in properly sorted order.
 		for (int i=0; i<m_FileWordCount-1; i++)
 		{
-			if (m_WordList[i].compareTo(m_WordList[i+1]) > 0)
+			if (CompareWords(m_WordList[i], m_WordList[i+1]) > 0)
 			{
 				throw new Exception("VerifySort fails: list badly sorted.");
 			}
@@ -0,0 +1,334 @@
+/****************************************************************************
+ Class: VocabularyFilter
+ Purpose: Decides which words of a text are kept in its vector, so that
+ vectors hold fewer, more useful terms: DotProduct then has less to walk
+ and stored vectors are smaller.  Words can be dropped in two stages:
+ (a) As they are tokenized, before they are counted or sorted: words on a
+     stopword list.
+ (b) Once the text is counted, by term id: terms in too few or too many
+     documents of a corpus, and all but the most frequent terms when the
+     vocabulary is capped.
+
+ Constructor: VocabularyFilter()
+ Behavior: Creates a filter that keeps every word.
+
+ Public Class Methods:
+ 	void addStopwords(String text) : Drops every word of the text.
+ 	void LoadStopwords(String fileName) : Drops every word of a file.
+ 	void setDocumentFrequencyRange(CorpusStatistics statistics,
+ 		int minDocuments, double maxFraction) : Drops terms by the number of
+ 		documents containing them.
+ 	void setMaxVocabulary(int maxTerms) : Keeps only the most frequent terms.
+ 	int getStopwordCount() : Returns the number of stopwords.
+ 	boolean Accepts(char[] word, int length) : Tells whether stage (a)
+ 		keeps a word.
+ 	TokenSink Wrap(TokenSink sink) : Returns a sink that passes on to the
+ 		given one only the words stage (a) keeps.
+ 	boolean PrunesByDocumentFrequency() : Tells whether stage (b) reads
+ 		corpus statistics.
+ 	TermVector Apply(TermVector vector) : Applies both stages to a vector.
+
+ A filter is configured first, then used; once in use it is never
+ changed, so it may be shared by several threads and vectors.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Class declaration:
+public class VocabularyFilter
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Words dropped as they are tokenized
+	WordInterner m_Stopwords;
+
+	// Statistics of the corpus, or null for no document-frequency pruning,
+	// and the range of document frequencies kept
+	CorpusStatistics m_Statistics;
+	int m_MinDocuments;
+	double m_MaxFraction;
+
+	// Largest number of distinct terms kept in a vector
+	int m_MaxVocabulary;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates a filter that keeps every word.
+	//-----------------------------------------------------------------------
+	public VocabularyFilter()
+	{
+		m_Stopwords = new WordInterner();
+		m_Statistics = null;
+		m_MinDocuments = 0;
+		m_MaxFraction = 1.0;
+		m_MaxVocabulary = Integer.MAX_VALUE;
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// addStopwords: Drops every word of a text, e.g., "the of and a".
+	//
+	// Input: A text, whose words are found as in a file, so that they match
+	// the words of the texts filtered: "The" and "the," both give "the".
+	//-----------------------------------------------------------------------
+	public void addStopwords(String text)
+	{
+		WordTokenizer tokenizer = new WordTokenizer(StopwordSink());
+		char[] chars = text.toCharArray();
+		tokenizer.feed(chars, 0, chars.length);
+		tokenizer.finish();
+	}
+
+	//-----------------------------------------------------------------------
+	// LoadStopwords: Drops every word of a file, e.g., a stopword list with
+	// one word per line.
+	//-----------------------------------------------------------------------
+	public void LoadStopwords(String fileName) throws IOException
+	{
+		WordTokenizer.TokenizeFile(fileName, StopwordSink());
+	}
+
+	//-----------------------------------------------------------------------
+	// setDocumentFrequencyRange: Drops terms that are too rare or too
+	// common in a corpus.
+	//
+	// Input: The statistics of the corpus; the fewest documents a term must
+	// be in to be kept; and the largest fraction of the documents it may be
+	// in, e.g., 0.5 to drop terms in more than half of them.
+	// Properties: The statistics are read when a vector is filtered, so a
+	// vector's own words count towards minDocuments if it was added to
+	// them first.  VectorTextFile3 therefore leaves this pruning to
+	// VectorTextFile3.Prune, called once the vector is added.  With few
+	// documents, a term in one document is in a large
+	// fraction of them, so maxFraction should be left at 1.0 until the
+	// corpus has grown.
+	//-----------------------------------------------------------------------
+	public void setDocumentFrequencyRange(CorpusStatistics statistics, int minDocuments, double maxFraction)
+	{
+		m_Statistics = statistics;
+		m_MinDocuments = minDocuments;
+		m_MaxFraction = maxFraction;
+	}
+
+	//-----------------------------------------------------------------------
+	// setMaxVocabulary: Keeps, in each vector, only the maxTerms terms with
+	// the largest counts.
+	//-----------------------------------------------------------------------
+	public void setMaxVocabulary(int maxTerms)
+	{
+		if (maxTerms < 1)
+		{
+			throw new IllegalArgumentException("Vocabulary must hold at least one term: " + maxTerms);
+		}
+		m_MaxVocabulary = maxTerms;
+	}
+
+	//-----------------------------------------------------------------------
+	// getStopwordCount: Returns the number of distinct stopwords.
+	//-----------------------------------------------------------------------
+	public int getStopwordCount()
+	{
+		return m_Stopwords.size();
+	}
+
+	//-----------------------------------------------------------------------
+	// Accepts: Tells whether a word is kept as it is tokenized.
+	//
+	// Input: A character buffer, and the length of the word at its start.
+	// Output: False if the word is a stopword, true otherwise.
+	// Properties: One hash lookup, without creating a String.
+	//-----------------------------------------------------------------------
+	public boolean Accepts(char[] word, int length)
+	{
+		return m_Stopwords.find(word, length) == null;
+	}
+
+	//-----------------------------------------------------------------------
+	// Wrap: Returns a sink that passes on to the given sink only the words
+	// that Accepts keeps, for placing the filter between a WordTokenizer
+	// and a counter.
+	//-----------------------------------------------------------------------
+	public TokenSink Wrap(final TokenSink sink)
+	{
+		if (m_Stopwords.size() == 0)
+		{
+			return sink;
+		}
+		return new TokenSink() {
+			public void addToken(char[] word, int length)
+			{
+				if (Accepts(word, length))
+				{
+					sink.addToken(word, length);
+				}
+			}
+		};
+	}
+
+	//-----------------------------------------------------------------------
+	// PrunesByDocumentFrequency: Tells whether stage (b) drops terms by the
+	// document frequencies of a corpus, so that its result depends on the
+	// documents added to the statistics.
+	//-----------------------------------------------------------------------
+	public boolean PrunesByDocumentFrequency()
+	{
+		return m_Statistics != null;
+	}
+
+	//-----------------------------------------------------------------------
+	// Apply: Filters a counted vector.
+	//
+	// Input: A term vector.
+	// Output: The vector with the terms the filter drops removed, or the
+	// same vector if none is.
+	// Properties: Both stages are applied, so a vector counted without the
+	// token stage, e.g., one loaded from a VectorStore, is filtered fully.
+	//-----------------------------------------------------------------------
+	public TermVector Apply(TermVector vector)
+	{
+		return Apply(vector, false);
+	}
+
+	//-----------------------------------------------------------------------
+	// Apply: Filters a counted vector, as above.
+	//
+	// Input: A term vector, and whether it was counted through Wrap, so
+	// that it holds no stopword and they need not be looked up again.
+	// Output: As above.
+	// Methodology: Stopwords and terms outside the document-frequency range
+	// are dropped in one pass.  If more than m_MaxVocabulary terms remain,
+	// those with the largest counts are kept, ties going to the smaller
+	// term id, so a vector is always cut the same way.  The kept entries
+	// stay in id order, so the result is built without sorting again.
+	//-----------------------------------------------------------------------
+	TermVector Apply(TermVector vector, boolean tokenized)
+	{
+		if ((m_Statistics != null) && (m_Statistics.getDictionary() != vector.getDictionary()))
+		{
+			throw new IllegalArgumentException("Vector was built against a different dictionary.");
+		}
+		int n = vector.length();
+		boolean[] keep = new boolean[n];
+		int kept = 0;
+
+		if (m_Statistics != null)
+		{
+			synchronized (m_Statistics)
+			{
+				kept = Select(vector, keep, tokenized);
+			}
+		}
+		else
+		{
+			kept = Select(vector, keep, tokenized);
+		}
+
+		if (kept > m_MaxVocabulary)
+		{
+			// Pack (count, -id) so that the largest values are the entries to
+			// keep, and find the smallest value kept.
+			long[] ranked = new long[kept];
+			int r = 0;
+			for (int i=0; i<n; i++)
+			{
+				if (keep[i])
+				{
+					ranked[r] = ((long)vector.getCount(i) << 32) | (0xFFFFFFFFL - vector.getTermId(i));
+					r++;
+				}
+			}
+			Arrays.sort(ranked);
+			long threshold = ranked[kept - m_MaxVocabulary];
+			for (int i=0; i<n; i++)
+			{
+				if (keep[i] && ((((long)vector.getCount(i) << 32) | (0xFFFFFFFFL - vector.getTermId(i))) < threshold))
+				{
+					keep[i] = false;
+				}
+			}
+			kept = m_MaxVocabulary;
+		}
+
+		if (kept == n)
+		{
+			return vector;
+		}
+		int[] termIds = new int[kept];
+		int[] counts = new int[kept];
+		long squaredNorm = 0;
+		int j = 0;
+		for (int i=0; i<n; i++)
+		{
+			if (keep[i])
+			{
+				termIds[j] = vector.getTermId(i);
+				counts[j] = vector.getCount(i);
+				squaredNorm += (long)counts[j] * counts[j];
+				j++;
+			}
+		}
+		return TermVector.WithSquaredNorm(vector.getDictionary(), termIds, counts, squaredNorm);
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Select: Marks the entries of a vector that are neither stopwords nor
+	// outside the document-frequency range, returning how many there are.
+	// Stopwords are only looked up if the vector was not tokenized through
+	// the filter.
+	//-----------------------------------------------------------------------
+	private int Select(TermVector vector, boolean[] keep, boolean tokenized)
+	{
+		TermDictionary dictionary = vector.getDictionary();
+		double maxDocuments = (m_Statistics == null) ? 0 : m_MaxFraction * m_Statistics.getDocumentCount();
+		boolean stopwords = !tokenized && (m_Stopwords.size() > 0);
+		int kept = 0;
+		for (int i=0; i<vector.length(); i++)
+		{
+			int term = vector.getTermId(i);
+			if (stopwords)
+			{
+				String word = dictionary.getTerm(term);
+				if (m_Stopwords.find(word.toCharArray(), word.length()) != null)
+				{
+					continue;
+				}
+			}
+			if (m_Statistics != null)
+			{
+				int df = m_Statistics.getDocumentFrequency(term);
+				if ((df < m_MinDocuments) || (df > maxDocuments))
+				{
+					continue;
+				}
+			}
+			keep[i] = true;
+			kept++;
+		}
+		return kept;
+	}
+
+	//-----------------------------------------------------------------------
+	// StopwordSink: Returns a sink that adds each word it is given to the
+	// stopwords.
+	//-----------------------------------------------------------------------
+	private TokenSink StopwordSink()
+	{
+		return new TokenSink() {
+			public void addToken(char[] word, int length)
+			{
+				m_Stopwords.intern(word, length);
+			}
+		};
+	}
+}
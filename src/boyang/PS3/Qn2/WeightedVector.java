@@ -0,0 +1,294 @@
+/****************************************************************************
+ Class: WeightedVector
+ Purpose: Represents a text as a vector of weighted term frequencies, so
+ that common words such as "the" count for less than in the raw counts of
+ a TermVector.  Weights and the norm are computed once, when the vector
+ is built, so comparing two vectors is a single pass over their terms.
+
+ Constructor: WeightedVector(TermVector vector, CorpusStatistics statistics,
+ 	int scheme)
+ Behavior: Weights the terms of a vector by the given scheme (RawCount,
+ LogTF, TfIdf or Bm25), using the statistics of the corpus.
+
+ Constructor: WeightedVector(VectorTextFile3 vector, CorpusStatistics
+ 	statistics, int scheme)
+ Behavior: As above, for the vector of a file.
+
+ Public Class Methods:
+ 	int length() : Returns the number of distinct words.
+ 	int getTermId(int i) : Returns the term id of entry i.
+ 	double getWeight(int i) : Returns the weight of entry i.
+ 	int getScheme() : Returns the weighting scheme.
+ 	double Norm() : Returns the norm of the vector.
+
+ Static Methods:
+ 	double DotProduct(WeightedVector A, WeightedVector B) :
+ 		Returns the dot product of two vectors.
+ 	double Angle(WeightedVector A, WeightedVector B) :
+ 		Returns the angle between two vectors.
+
+ For a term with count tf, in a document of dl words, in a corpus of
+ average length avgdl, the weights are:
+ 	RawCount : tf, as in TermVector.
+ 	LogTF : 1 + ln(tf).
+ 	TfIdf : (1 + ln(tf)) * CorpusStatistics.Idf.
+ 	Bm25 : CorpusStatistics.Bm25Idf * tf*(k1+1) / (tf + k1*(1 - b + b*dl/avgdl)),
+ 		with k1 = Bm25K1 and b = Bm25B.
+ The angle between two documents weighted alike is a symmetric
+ similarity.  The classic BM25 score of a document for a query is
+ instead DotProduct(query weighted by RawCount, document weighted by
+ Bm25).  A vector is weighted by the statistics when it is built, so
+ vectors built as the corpus changes should be rebuilt once its
+ frequencies have moved enough to matter.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+// Class declaration:
+public class WeightedVector
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Weighting schemes
+	public static final int RawCount = 0;
+	public static final int LogTF = 1;
+	public static final int TfIdf = 2;
+	public static final int Bm25 = 3;
+
+	// BM25 parameters: how quickly repeats of a term saturate, and how
+	// strongly counts are normalized by document length
+	public static final double Bm25K1 = 1.2;
+	public static final double Bm25B = 0.75;
+
+	// Dictionary that the term ids refer to
+	TermDictionary m_Dictionary;
+
+	// Term id of each entry, in increasing order, shared with the TermVector
+	// the weights were computed from
+	int[] m_TermIds;
+
+	// Weight of each entry
+	double[] m_Weights;
+
+	// Weighting scheme, and the square-root of the sum of squared weights
+	int m_Scheme;
+	double m_Norm;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Weights the terms of a vector.
+	//
+	// Input: The vector, the statistics of the corpus it belongs to, and the
+	// weighting scheme.  The statistics may be null for RawCount and LogTF,
+	// which do not use them.
+	// Properties: On completion, m_Weights holds the weight of each term of
+	// the vector and m_Norm the norm of the weights.  The statistics are
+	// read under their lock, so that all the weights see the same corpus
+	// even while other threads add documents.
+	//-----------------------------------------------------------------------
+	public WeightedVector(TermVector vector, CorpusStatistics statistics, int scheme)
+	{
+		if ((scheme < RawCount) || (scheme > Bm25))
+		{
+			throw new IllegalArgumentException("Unknown weighting scheme: " + scheme);
+		}
+		if ((scheme >= TfIdf) && (statistics == null))
+		{
+			throw new IllegalArgumentException("Weighting scheme " + scheme + " needs corpus statistics.");
+		}
+		if ((statistics != null) && (statistics.getDictionary() != vector.getDictionary()))
+		{
+			throw new IllegalArgumentException("Vector was built against a different dictionary.");
+		}
+
+		m_Dictionary = vector.getDictionary();
+		m_TermIds = vector.m_TermIds;
+		m_Weights = new double[m_TermIds.length];
+		m_Scheme = scheme;
+
+		if (scheme >= TfIdf)
+		{
+			synchronized (statistics)
+			{
+				Weigh(vector, statistics);
+			}
+		}
+		else
+		{
+			Weigh(vector, statistics);
+		}
+
+		double squaredNorm = 0;
+		for (int i=0; i<m_Weights.length; i++)
+		{
+			squaredNorm += m_Weights[i] * m_Weights[i];
+		}
+		m_Norm = Math.sqrt(squaredNorm);
+	}
+
+	//-----------------------------------------------------------------------
+	// Constructor: Weights the terms of the vector of a file.  A vector
+	// whose file failed to load has no words.
+	//-----------------------------------------------------------------------
+	public WeightedVector(VectorTextFile3 vector, CorpusStatistics statistics, int scheme)
+	{
+		this((vector.m_CountedWords != null) ? vector.m_CountedWords
+				: new TermVector(TermDictionary.Global, new int[0], new int[0], 0),
+			statistics, scheme);
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// length: Returns the number of distinct words in the vector.
+	//-----------------------------------------------------------------------
+	public int length()
+	{
+		return m_TermIds.length;
+	}
+
+	//-----------------------------------------------------------------------
+	// getTermId: Returns the term id of entry i.
+	//-----------------------------------------------------------------------
+	public int getTermId(int i)
+	{
+		return m_TermIds[i];
+	}
+
+	//-----------------------------------------------------------------------
+	// getWeight: Returns the weight of entry i.
+	//-----------------------------------------------------------------------
+	public double getWeight(int i)
+	{
+		return m_Weights[i];
+	}
+
+	//-----------------------------------------------------------------------
+	// getScheme: Returns the weighting scheme the vector was built with.
+	//-----------------------------------------------------------------------
+	public int getScheme()
+	{
+		return m_Scheme;
+	}
+
+	//-----------------------------------------------------------------------
+	// Norm: Returns the norm of the weights, computed when the vector was
+	// built.
+	//-----------------------------------------------------------------------
+	public double Norm()
+	{
+		return m_Norm;
+	}
+
+	/*****************************
+	 * Static Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// DotProduct: Calculates the dot-product of two weighted vectors.
+	//
+	// Input: Two vectors built against the same dictionary.
+	// Output: The sum, over the terms in both, of the products of their
+	// weights.
+	// Methodology: The two sorted id lists are walked together, as in
+	// TermVector's merge, in O(m + n) steps.
+	//-----------------------------------------------------------------------
+	public static double DotProduct(WeightedVector A, WeightedVector B)
+	{
+		if (A.m_Dictionary != B.m_Dictionary)
+		{
+			throw new IllegalArgumentException("Vectors were built against different dictionaries.");
+		}
+		int[] Aids = A.m_TermIds;
+		int[] Bids = B.m_TermIds;
+		int Aindex = 0;
+		int Bindex = 0;
+		double sum = 0;
+		while ((Aindex < Aids.length) && (Bindex < Bids.length))
+		{
+			int Aid = Aids[Aindex];
+			int Bid = Bids[Bindex];
+			if (Aid == Bid)
+			{
+				sum += A.m_Weights[Aindex] * B.m_Weights[Bindex];
+				Aindex++;
+				Bindex++;
+			}
+			else if (Aid > Bid)
+			{
+				Bindex++;
+			}
+			else
+			{
+				Aindex++;
+			}
+		}
+		return sum;
+	}
+
+	//-----------------------------------------------------------------------
+	// Angle: Calculates the angle between two weighted vectors.
+	//
+	// Input: Two vectors built against the same dictionary, normally with
+	// the same scheme and statistics.
+	// Output: An angle between [0,pi/2], arccos((AB)/(|A|*|B|)) as in
+	// VectorTextFile3.Angle.  A vector with no weight is taken to have
+	// nothing in common with the other, at pi/2.
+	//-----------------------------------------------------------------------
+	public static double Angle(WeightedVector A, WeightedVector B)
+	{
+		double dot = DotProduct(A, B);
+		if ((A.m_Norm == 0) || (B.m_Norm == 0))
+		{
+			return Math.PI / 2;
+		}
+		// Rounding can push this just past 1 for identical vectors, so clamp it.
+		return Math.acos(Math.min(1.0, dot / (A.m_Norm * B.m_Norm)));
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Weigh: Computes the weight of every term into m_Weights.
+	//-----------------------------------------------------------------------
+	private void Weigh(TermVector vector, CorpusStatistics statistics)
+	{
+		double lengthRatio = 1;
+		if (m_Scheme == Bm25)
+		{
+			long length = 0;
+			for (int i=0; i<vector.length(); i++)
+			{
+				length += vector.getCount(i);
+			}
+			double averageLength = statistics.getAverageLength();
+			lengthRatio = (averageLength == 0) ? 1 : length / averageLength;
+		}
+
+		for (int i=0; i<m_Weights.length; i++)
+		{
+			int count = vector.getCount(i);
+			switch (m_Scheme)
+			{
+			case RawCount:
+				m_Weights[i] = count;
+				break;
+			case LogTF:
+				m_Weights[i] = 1 + Math.log(count);
+				break;
+			case TfIdf:
+				m_Weights[i] = (1 + Math.log(count)) * statistics.Idf(m_TermIds[i]);
+				break;
+			default:
+				m_Weights[i] = statistics.Bm25Idf(m_TermIds[i]) * count * (Bm25K1 + 1)
+					/ (count + Bm25K1 * (1 - Bm25B + Bm25B * lengthRatio));
+				break;
+			}
+		}
+	}
+}
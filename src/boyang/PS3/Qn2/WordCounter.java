@@ -0,0 +1,282 @@
+/****************************************************************************
+ Class: WordCounter
+ Purpose: Counts how often each distinct word occurs, using an
+ open-addressing hash table keyed by word.
+
+ Constructor: WordCounter()
+ Behavior: Creates an empty counter.
+
+ Public Class Methods:
+ 	void addToken(char[] word, int length) : Counts one occurrence of a word.
+ 	void add(String word, int count) : Counts several occurrences of a word.
+ 	void addAll(WordCounter other) : Adds every count of another counter.
+ 	long getTokenCount() : Returns the number of words counted.
+ 	int getDistinctCount() : Returns the number of distinct words.
+ 	TermVector toTermVector(TermDictionary dictionary) : Returns the counts
+ 		as a vector of term ids.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+// Class declaration:
+public class WordCounter implements TokenSink
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Initial number of slots in the table (always a power of two)
+	public static final int InitialCapacity = 1024;
+
+	// Distinct word stored in each slot (null for an empty slot)
+	String[] m_Keys;
+
+	// Hash code of the word stored in each slot
+	int[] m_Hashes;
+
+	// Number of occurrences of the word stored in each slot
+	int[] m_Counts;
+
+	// Number of distinct words in the table
+	int m_Size;
+
+	// Number of words counted
+	long m_TokenCount;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates an empty counter.
+	//-----------------------------------------------------------------------
+	public WordCounter()
+	{
+		m_Keys = new String[InitialCapacity];
+		m_Hashes = new int[InitialCapacity];
+		m_Counts = new int[InitialCapacity];
+		m_Size = 0;
+		m_TokenCount = 0;
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// addToken: Counts one occurrence of a word.
+	//
+	// Input: A character buffer, and the length of the word at its start.
+	// Output: None.
+	// Properties: A String is only created the first time a word is seen.
+	// Methodology: The slot is found by linear probing from the word's hash,
+	// comparing stored hashes before comparing characters.
+	//-----------------------------------------------------------------------
+	public void addToken(char[] word, int length)
+	{
+		// Compute the same hash as String.hashCode().
+		int hash = 0;
+		for (int i=0; i<length; i++)
+		{
+			hash = 31*hash + word[i];
+		}
+
+		int mask = m_Keys.length - 1;
+		int slot = Spread(hash) & mask;
+		while (m_Keys[slot] != null)
+		{
+			if ((m_Hashes[slot] == hash) && Matches(m_Keys[slot], word, length))
+			{
+				m_Counts[slot]++;
+				m_TokenCount++;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		// The word is new: store it in the empty slot.
+		Insert(slot, new String(word, 0, length), hash, 1);
+	}
+
+	//-----------------------------------------------------------------------
+	// add: Counts several occurrences of a word.
+	//
+	// Input: The word, and the number of occurrences to add.
+	//-----------------------------------------------------------------------
+	public void add(String word, int count)
+	{
+		int hash = word.hashCode();
+		int mask = m_Keys.length - 1;
+		int slot = Spread(hash) & mask;
+		while (m_Keys[slot] != null)
+		{
+			if ((m_Hashes[slot] == hash) && m_Keys[slot].equals(word))
+			{
+				m_Counts[slot] += count;
+				m_TokenCount += count;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		Insert(slot, word, hash, count);
+	}
+
+	//-----------------------------------------------------------------------
+	// addAll: Adds every count of another counter to this one, e.g., to
+	// combine the counts of separate parts of a file.
+	//
+	// Input: The other counter, which is not modified.
+	// Properties: Costs O(D) for the D distinct words of the other counter,
+	// whose stored hashes are reused.
+	//-----------------------------------------------------------------------
+	public void addAll(WordCounter other)
+	{
+		int mask = m_Keys.length - 1;
+		for (int i=0; i<other.m_Keys.length; i++)
+		{
+			String word = other.m_Keys[i];
+			if (word == null)
+			{
+				continue;
+			}
+			int hash = other.m_Hashes[i];
+			int count = other.m_Counts[i];
+			int slot = Spread(hash) & mask;
+			while (true)
+			{
+				if (m_Keys[slot] == null)
+				{
+					Insert(slot, word, hash, count);
+					mask = m_Keys.length - 1;
+					break;
+				}
+				if ((m_Hashes[slot] == hash) && m_Keys[slot].equals(word))
+				{
+					m_Counts[slot] += count;
+					m_TokenCount += count;
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// getTokenCount: Returns the number of words counted.
+	//-----------------------------------------------------------------------
+	public long getTokenCount()
+	{
+		return m_TokenCount;
+	}
+
+	//-----------------------------------------------------------------------
+	// getDistinctCount: Returns the number of distinct words counted.
+	//-----------------------------------------------------------------------
+	public int getDistinctCount()
+	{
+		return m_Size;
+	}
+
+	//-----------------------------------------------------------------------
+	// toTermVector: Returns the counted words as a vector.
+	//
+	// Input: The dictionary in which to look up the words.
+	// Output: A TermVector with one entry per distinct word.
+	// Properties: Each distinct word is looked up once, and only the D 
+	// distinct entries are sorted, so this costs O(D log D) regardless of
+	// the number of tokens.
+	//-----------------------------------------------------------------------
+	public TermVector toTermVector(TermDictionary dictionary)
+	{
+		int[] termIds = new int[m_Size];
+		int[] counts = new int[m_Size];
+		int iNumPairs = 0;
+		for (int slot=0; slot<m_Keys.length; slot++)
+		{
+			if (m_Keys[slot] != null)
+			{
+				termIds[iNumPairs] = dictionary.getId(m_Keys[slot]);
+				counts[iNumPairs] = m_Counts[slot];
+				iNumPairs++;
+			}
+		}
+		return new TermVector(dictionary, termIds, counts, iNumPairs);
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Insert: Stores a new word in an empty slot, growing the table once it
+	// is half full.
+	//-----------------------------------------------------------------------
+	private void Insert(int slot, String word, int hash, int count)
+	{
+		m_Keys[slot] = word;
+		m_Hashes[slot] = hash;
+		m_Counts[slot] = count;
+		m_Size++;
+		m_TokenCount += count;
+
+		if (m_Size * 2 > m_Keys.length)
+		{
+			Resize(m_Keys.length * 2);
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// Resize: Moves every entry into a table with the given number of slots.
+	//-----------------------------------------------------------------------
+	private void Resize(int capacity)
+	{
+		String[] oldKeys = m_Keys;
+		int[] oldHashes = m_Hashes;
+		int[] oldCounts = m_Counts;
+
+		m_Keys = new String[capacity];
+		m_Hashes = new int[capacity];
+		m_Counts = new int[capacity];
+
+		int mask = capacity - 1;
+		for (int i=0; i<oldKeys.length; i++)
+		{
+			if (oldKeys[i] != null)
+			{
+				int slot = Spread(oldHashes[i]) & mask;
+				while (m_Keys[slot] != null)
+				{
+					slot = (slot + 1) & mask;
+				}
+				m_Keys[slot] = oldKeys[i];
+				m_Hashes[slot] = oldHashes[i];
+				m_Counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	// Spread: Mixes the high bits of a hash into the low bits, since short
+	// words differ mostly in their low bits.
+	//-----------------------------------------------------------------------
+	static int Spread(int hash)
+	{
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	//-----------------------------------------------------------------------
+	// Matches: Returns true if the String holds exactly the given characters.
+	//-----------------------------------------------------------------------
+	static boolean Matches(String key, char[] word, int length)
+	{
+		if (key.length() != length)
+		{
+			return false;
+		}
+		for (int i=0; i<length; i++)
+		{
+			if (key.charAt(i) != word[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
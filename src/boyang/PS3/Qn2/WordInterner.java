@@ -0,0 +1,170 @@
+/****************************************************************************
+ Class: WordInterner
+ Purpose: Turns the words delivered by a WordTokenizer into Strings,
+ returning the same String instance every time the same word is seen, so
+ that a list of words holds one object per distinct word rather than one
+ per occurrence.
+
+ Constructor: WordInterner()
+ Behavior: Creates an empty intern table.
+
+ Public Class Methods:
+ 	String intern(char[] word, int length) : Returns the shared String
+ 		holding the given characters.
+ 	String find(char[] word, int length) : Returns the shared String
+ 		holding the given characters, or null if it was never interned.
+ 	int size() : Returns the number of distinct words interned.
+ 	void clear() : Forgets every word.
+
+ The table is local to its owner, unlike String.intern(), so its words
+ are freed with it, and it is not thread-safe.  It uses the same
+ open-addressing layout as WordCounter.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.util.Arrays;
+
+// Class declaration:
+public class WordInterner
+{
+	/*****************************
+	 * Class member variables
+	 *****************************/
+	// Distinct word stored in each slot (null for an empty slot), and its
+	// hash code
+	String[] m_Keys;
+	int[] m_Hashes;
+
+	// Number of distinct words in the table
+	int m_Size;
+
+	//-----------------------------------------------------------------------
+	// Constructor: Creates an empty intern table.
+	//-----------------------------------------------------------------------
+	public WordInterner()
+	{
+		m_Keys = new String[WordCounter.InitialCapacity];
+		m_Hashes = new int[WordCounter.InitialCapacity];
+		m_Size = 0;
+	}
+
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// intern: Returns the shared String for a word.
+	//
+	// Input: A character buffer, and the length of the word at its start.
+	// Output: A String equal to the word.  Equal words always give the
+	// same instance, so interned words can be compared with ==.
+	// Properties: A String is only created the first time a word is seen.
+	//-----------------------------------------------------------------------
+	public String intern(char[] word, int length)
+	{
+		// Compute the same hash as String.hashCode().
+		int hash = 0;
+		for (int i=0; i<length; i++)
+		{
+			hash = 31*hash + word[i];
+		}
+
+		int mask = m_Keys.length - 1;
+		int slot = WordCounter.Spread(hash) & mask;
+		while (m_Keys[slot] != null)
+		{
+			if ((m_Hashes[slot] == hash) && WordCounter.Matches(m_Keys[slot], word, length))
+			{
+				return m_Keys[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		// The word is new: store it in the empty slot.
+		String key = new String(word, 0, length);
+		m_Keys[slot] = key;
+		m_Hashes[slot] = hash;
+		m_Size++;
+		if (m_Size * 2 > m_Keys.length)
+		{
+			Resize(m_Keys.length * 2);
+		}
+		return key;
+	}
+
+	//-----------------------------------------------------------------------
+	// find: Returns the shared String for a word, or null if the word was
+	// never interned.  Unlike intern, it never changes the table, so once
+	// filled, a table may be searched by several threads at once.
+	//-----------------------------------------------------------------------
+	public String find(char[] word, int length)
+	{
+		int hash = 0;
+		for (int i=0; i<length; i++)
+		{
+			hash = 31*hash + word[i];
+		}
+
+		int mask = m_Keys.length - 1;
+		int slot = WordCounter.Spread(hash) & mask;
+		while (m_Keys[slot] != null)
+		{
+			if ((m_Hashes[slot] == hash) && WordCounter.Matches(m_Keys[slot], word, length))
+			{
+				return m_Keys[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	//-----------------------------------------------------------------------
+	// size: Returns the number of distinct words interned.
+	//-----------------------------------------------------------------------
+	public int size()
+	{
+		return m_Size;
+	}
+
+	//-----------------------------------------------------------------------
+	// clear: Forgets every word, keeping the table's capacity.
+	//-----------------------------------------------------------------------
+	public void clear()
+	{
+		Arrays.fill(m_Keys, null);
+		m_Size = 0;
+	}
+
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+
+	//-----------------------------------------------------------------------
+	// Resize: Moves every word into a table with the given number of slots.
+	//-----------------------------------------------------------------------
+	private void Resize(int capacity)
+	{
+		String[] oldKeys = m_Keys;
+		int[] oldHashes = m_Hashes;
+
+		m_Keys = new String[capacity];
+		m_Hashes = new int[capacity];
+
+		int mask = capacity - 1;
+		for (int i=0; i<oldKeys.length; i++)
+		{
+			if (oldKeys[i] != null)
+			{
+				int slot = WordCounter.Spread(oldHashes[i]) & mask;
+				while (m_Keys[slot] != null)
+				{
+					slot = (slot + 1) & mask;
+				}
+				m_Keys[slot] = oldKeys[i];
+				m_Hashes[slot] = oldHashes[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/****************************************************************************
+ Class: WordTokenizer
+ Purpose: Splits raw text bytes into normalized words in a single pass,
+ handing each word to a TokenSink without building an intermediate String.
+ 
+ Constructor: WordTokenizer(TokenSink sink)
+ Behavior: Creates a tokenizer that delivers its words to the given sink.
+ 
+ Public Class Methods:
+ 	void feed(ByteBuffer block) : Tokenizes a block of raw bytes.
+ 	void feed(char[] chars, int offset, int length) : Tokenizes a block of
+ 		characters.
+ 	void finish() : Delivers any word left at the end of the input.
+ 	long getTokenCount() : Returns the number of words delivered.
+ 	
+ Static Methods:
+ 	long TokenizeFile(String fileName, TokenSink sink) : 
+ 		Tokenizes a whole file, returning the number of words.
+ 	long TokenizeRange(String fileName, long begin, long end, TokenSink sink) :
+ 		Tokenizes bytes [begin, end) of a file, returning the number of words.
+ ***************************************************************************/
+
+// This class is part of the cs2020 package.
+package boyang.PS3.Qn2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Class declaration:
+public class WordTokenizer
+{
+	/*****************************
+	 * Class member variables 
+	 *****************************/
+	// The sink that receives each word
+	TokenSink m_Sink;
+	
+	// Characters of the word currently being built
+	char[] m_Word;
+	
+	// Number of characters in the current word
+	int m_Length;
+	
+	// Number of words delivered to the sink
+	long m_TokenCount;
+	
+	//-----------------------------------------------------------------------
+	// Constructor: Creates a tokenizer that delivers words to the sink.
+	//
+	// Input: The TokenSink that receives each word.
+	//-----------------------------------------------------------------------
+	public WordTokenizer(TokenSink sink)
+	{
+		m_Sink = sink;
+		m_Word = new char[64];
+		m_Length = 0;
+		m_TokenCount = 0;
+	}
+	
+	/*****************************
+	 * Public Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// feed: Tokenizes a block of raw bytes.
+	//
+	// Input: A buffer holding the next bytes of the text.
+	// Output: None.
+	// Properties: Every byte is normalized as in FileTextReader.Normalize.
+	// Letters are added to the current word, spaces and end-of-line markers
+	// end it, and all other bytes are removed.  A word may continue across
+	// blocks.  On completion, the buffer has no bytes remaining.
+	//-----------------------------------------------------------------------
+	public void feed(ByteBuffer block)
+	{
+		while (block.hasRemaining())
+		{
+			addChar(FileTextReader.Normalize(block.get()));
+		}
+	}
+	
+	//-----------------------------------------------------------------------
+	// feed: Tokenizes a block of characters, e.g., read from a Reader.
+	//
+	// Input: A character array, and the range [offset, offset + length) of
+	// it holding the next characters of the text.
+	// Output: None.
+	// Properties: As for bytes.  Characters up to U+00FF are normalized as
+	// the byte of the same value, so Latin-1 text gives the same words
+	// either way; all other characters are removed.
+	//-----------------------------------------------------------------------
+	public void feed(char[] chars, int offset, int length)
+	{
+		for (int i=offset; i<offset+length; i++)
+		{
+			char c = chars[i];
+			addChar((c <= 0xFF) ? FileTextReader.Normalize((byte)c) : 0);
+		}
+	}
+	
+	//-----------------------------------------------------------------------
+	// finish: Delivers the last word, once the input is exhausted.
+	//-----------------------------------------------------------------------
+	public void finish()
+	{
+		endWord();
+	}
+	
+	//-----------------------------------------------------------------------
+	// getTokenCount: Returns the number of words delivered to the sink.
+	//-----------------------------------------------------------------------
+	public long getTokenCount()
+	{
+		return m_TokenCount;
+	}
+	
+	/*****************************
+	 * Static Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// TokenizeFile: Tokenizes a whole file.
+	//
+	// Input: String containing a filename, and the sink for its words.
+	// Output: The number of words delivered to the sink.
+	//-----------------------------------------------------------------------
+	public static long TokenizeFile(String fileName, TokenSink sink) throws IOException
+	{
+		return TokenizeRange(fileName, 0, Long.MAX_VALUE, sink);
+	}
+	
+	//-----------------------------------------------------------------------
+	// TokenizeRange: Tokenizes part of a file.
+	//
+	// Input: String containing a filename, the range of bytes [begin, end)
+	// to tokenize, and the sink for its words.
+	// Output: The number of words delivered to the sink.
+	// Assumptions: The range begins and ends at word boundaries (see
+	// FileTextReader.WordBoundary); otherwise a word crossing either end is
+	// delivered in part.
+	//-----------------------------------------------------------------------
+	public static long TokenizeRange(String fileName, long begin, long end, TokenSink sink) throws IOException
+	{
+		FileTextReader reader = null;
+		WordTokenizer tokenizer = new WordTokenizer(sink);
+		try{
+			reader = new FileTextReader(fileName, begin, end);
+			ByteBuffer block;
+			while ((block = reader.nextBlock()) != null)
+			{
+				tokenizer.feed(block);
+			}
+			tokenizer.finish();
+		}
+		finally
+		{
+			if (reader != null){
+				reader.close();
+			}
+		}
+		return tokenizer.getTokenCount();
+	}
+	
+	/*****************************
+	 * Private Class Methods     *
+	 *****************************/
+	
+	//-----------------------------------------------------------------------
+	// addChar: Adds a normalized character to the current word, ends the
+	// word on a space, and ignores a removed character (0).
+	//-----------------------------------------------------------------------
+	private void addChar(char c)
+	{
+		if (c == ' ')
+		{
+			endWord();
+		}
+		else if (c != 0)
+		{
+			// Grow the word buffer on the rare very long word.
+			if (m_Length == m_Word.length)
+			{
+				char[] longer = new char[m_Word.length * 2];
+				System.arraycopy(m_Word, 0, longer, 0, m_Length);
+				m_Word = longer;
+			}
+			m_Word[m_Length] = c;
+			m_Length++;
+		}
+	}
+	
+	//-----------------------------------------------------------------------
+	// endWord: Delivers the current word to the sink, if it is non-empty.
+	//-----------------------------------------------------------------------
+	private void endWord()
+	{
+		if (m_Length > 0)
+		{
+			m_Sink.addToken(m_Word, m_Length);
+			m_TokenCount++;
+			m_Length = 0;
+		}
+	}
+}